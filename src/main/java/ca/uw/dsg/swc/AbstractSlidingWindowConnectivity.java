@@ -1,120 +1,257 @@
 package ca.uw.dsg.swc;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntIntPair;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
 
-public abstract class AbstractSlidingWindowConnectivity {
+public abstract class AbstractSlidingWindowConnectivity implements MemoryAccountable {
     protected final long range, slide;
     protected final boolean isRangeMultipleOfSlide;
 
-    protected List<IntIntPair> workload;
+    private boolean memoryCalibration; // measure the memory by walking the object graph with JOL, instead of the O(1) estimate
+
+    private long allowedLateness; // 0 if the edges are in timestamp order
+    private ReorderBuffer reorderBuffer; // the reorder buffer of the last run, null if the edges are in timestamp order
+
+    // the workload is owned by the ingest thread, and is not guarded: the implementations read it while ingesting and answering windows,
+    // and a backward buffer that is computed on another thread copies its pairs when it is created on the ingest thread
+    protected List<IntIntPair> workload; // a slot of an unregistered query is null until it is reused
+    private final IntArrayList freeSlots;
+    private volatile long ingestThreadId = NO_RUN; // the id of the thread of a running computeSlidingWindowConnectivity, a reference would be walked by JOL
+    private static final long NO_RUN = -1;
+    private long[] bitmap = new long[0]; // the answers of the current window, see clearedBitmap
+    private long[] changedSlots = new long[0]; // the slots that are registered or unregistered since the last clearChangedSlots
 
     public AbstractSlidingWindowConnectivity(Duration range, Duration slide) {
         this.range = range.toMillis();
         this.slide = slide.toMillis();
         this.isRangeMultipleOfSlide = (range.toMillis() % slide.toMillis() == 0);
+        this.workload = new ArrayList<>();
+        this.freeSlots = new IntArrayList();
     }
 
     public AbstractSlidingWindowConnectivity(Duration range, Duration slide, List<IntIntPair> workload) {
         this.range = range.toMillis();
         this.slide = slide.toMillis();
         this.isRangeMultipleOfSlide = (range.toMillis() % slide.toMillis() == 0);
-        this.workload = workload;
+        this.workload = new ArrayList<>(workload); // the workload can be changed at runtime
+        this.freeSlots = new IntArrayList();
+        for (int i = workload.size() - 1; i >= 0; i--) // e.g., the workload of a checkpoint
+            if (workload.get(i) == null)
+                freeSlots.push(i);
+    }
+
+    // register a standing query, which is answered from the next window on, without reprocessing the stream
+    // returns the slot of the query in the workload, i.e., the index of its output stream; slots of unregistered queries are reused
+    // during a run, a query can only be registered on its ingest thread, e.g., by its result sink between two windows,
+    // and a slot that is appended gets an output stream; see SlidingWindowConnectivityProcessor.registerQuery for the reactive front-end
+    public int registerQuery(int source, int target) {
+        checkIngestThread();
+        IntIntPair query = IntIntPair.of(source, target);
+        int slot;
+        if (freeSlots.isEmpty()) {
+            workload.add(query);
+            slot = workload.size() - 1;
+        } else {
+            slot = freeSlots.popInt();
+            workload.set(slot, query);
+        }
+        markChanged(slot);
+        return slot;
     }
 
-    // assuming timestamps of streaming edges are contiguous, i.e., the difference between every two adjacent time stamps is less than a slide interval
+    // unregister the standing query in the slot, whose output stream does not receive results anymore
+    public void unregisterQuery(int slot) {
+        checkIngestThread();
+        if (workload.get(slot) == null)
+            return;
+        workload.set(slot, null);
+        freeSlots.push(slot);
+        markChanged(slot);
+    }
+
+    private void markChanged(int slot) {
+        if (changedSlots.length <= slot >>> 6)
+            changedSlots = Arrays.copyOf(changedSlots, Math.max((slot >>> 6) + 1, changedSlots.length << 1));
+        changedSlots[slot >>> 6] |= 1L << slot;
+    }
+
+    // clears the bits of the slots that are registered or unregistered since the last call in the answers of the previous window,
+    // such that an unregistered query, or a query in a reused slot, is not reported as a flip from the answer of the previous query of its slot
+    void clearChangedSlots(long[] previousAnswers) {
+        for (int i = 0, len = Math.min(previousAnswers.length, changedSlots.length); i < len; i++)
+            previousAnswers[i] &= ~changedSlots[i];
+        Arrays.fill(changedSlots, 0L);
+    }
+
+    private void checkIngestThread() {
+        long threadId = ingestThreadId;
+        if (threadId != NO_RUN && threadId != Thread.currentThread().getId())
+            throw new IllegalStateException("The workload can only be changed on the ingest thread during a run");
+    }
+
+    // the run is owned by the calling thread until the returned iterator is exhausted, see endRun
+    private Iterator<StreamingEdge> startRun(Iterator<StreamingEdge> inputStream) {
+        if (ingestThreadId != NO_RUN)
+            throw new IllegalStateException("A run is in progress on another thread");
+        ingestThreadId = Thread.currentThread().getId();
+        return ingest(inputStream);
+    }
+
+    private void endRun() {
+        ingestThreadId = NO_RUN;
+    }
+
+    // timestamps of streaming edges may have gaps of many slides, the empty windows in a gap are queried once and their results are repeated in bulk
     // the content of the every window instance: [t_start, t_end)
     public void computeSlidingWindowConnectivity(Collection<StreamingEdge> inputStream, List<List<Boolean>> outputStreams) {
-        if (inputStream.isEmpty())
+        if (workload.size() != outputStreams.size())
             return;
+        computeSlidingWindowConnectivity(inputStream, new OutputStreamsSink(workload, outputStreams));
+    }
 
-        final int num = outputStreams.size();
-        if (workload.size() != num)
+    // the answers of every window are written into the sink as a bitmap over the slots of the workload, which is reused from window to window
+    public void computeSlidingWindowConnectivity(Collection<StreamingEdge> inputStream, ResultSink resultSink) {
+        if (inputStream.isEmpty())
             return;
 
-        Iterator<StreamingEdge> streamingEdgeIterator = inputStream.iterator();
-        StreamingEdge streamingEdge = streamingEdgeIterator.next();
-        long startOfCurrentWindow = streamingEdge.timeStamp;
-        insert(streamingEdge);
-
-        while (streamingEdgeIterator.hasNext()) { // make the first window instance full
-            streamingEdge = streamingEdgeIterator.next();
-            if (streamingEdge.timeStamp - startOfCurrentWindow < range)
-                insert(streamingEdge);
-            else
-                break;
+        Iterator<StreamingEdge> streamingEdgeIterator = startRun(inputStream.iterator());
+        try {
+            StreamingEdge streamingEdge = streamingEdgeIterator.next();
+            long startOfCurrentWindow = startAt(streamingEdge.timeStamp), lastTimeStamp = streamingEdge.timeStamp;
+            if (streamingEdge.timeStamp - startOfCurrentWindow >= range) // an instance restored from a checkpoint continues from its own window
+                startOfCurrentWindow = computeWindowsBefore(streamingEdge.timeStamp, startOfCurrentWindow, lastTimeStamp, resultSink);
+            if (streamingEdge.timeStamp >= startOfCurrentWindow)
+                apply(streamingEdge);
+
+            while (streamingEdgeIterator.hasNext()) {
+                streamingEdge = streamingEdgeIterator.next();
+                if (streamingEdge.timeStamp - startOfCurrentWindow >= range) // compute query results of the windows that end before the edge
+                    startOfCurrentWindow = computeWindowsBefore(streamingEdge.timeStamp, startOfCurrentWindow, lastTimeStamp, resultSink);
+                if (streamingEdge.timeStamp >= startOfCurrentWindow && apply(streamingEdge)) // if the slide is larger than the range, edges between two windows are not in any window
+                    lastTimeStamp = streamingEdge.timeStamp;
+            }
+        } finally {
+            endRun();
         }
+    }
 
-        query(workload, outputStreams);
-        startOfCurrentWindow += slide;
-        evict(startOfCurrentWindow); // first evict
-        insert(streamingEdge);
-
-        while (streamingEdgeIterator.hasNext()) {
-            streamingEdge = streamingEdgeIterator.next();
-            if (streamingEdge.timeStamp - startOfCurrentWindow >= range) { // compute query result
-                query(workload, outputStreams);
-                startOfCurrentWindow += slide;
+    // compute the query results of every window that ends before the timestamp, and return the start of the first window containing the timestamp
+    // once a queried window is empty, the following windows before the timestamp are empty as well, so they are skipped in O(1)
+    private long computeWindowsBefore(long timeStamp, long startOfCurrentWindow, long lastTimeStamp, ResultSink resultSink) {
+        while (timeStamp - startOfCurrentWindow >= range) {
+            int num = workload.size();
+            long[] answers = clearedBitmap(num);
+            query(workload, answers);
+            resultSink.accept(startOfCurrentWindow, answers, num);
+            boolean isEmpty = startOfCurrentWindow > lastTimeStamp;
+            startOfCurrentWindow += slide;
+            evict(startOfCurrentWindow);
+            if (isEmpty && timeStamp - startOfCurrentWindow >= range) {
+                long numOfWindows = (timeStamp - range - startOfCurrentWindow) / slide + 1;
+                resultSink.acceptRepeated(startOfCurrentWindow, slide, numOfWindows, answers, num);
+                skipWindows(numOfWindows);
+                startOfCurrentWindow += numOfWindows * slide;
                 evict(startOfCurrentWindow);
             }
-            insert(streamingEdge);
         }
+        return startOfCurrentWindow;
     }
 
-    // test only for latency experiments
-    public void computeSlidingWindowConnectivity(Collection<StreamingEdge> inputStream, List<List<Boolean>> outputStreams, List<Long> latencyPerEdge) {
-        if (inputStream.isEmpty())
-            return;
-
-        final int num = outputStreams.size();
-        if (workload.size() != num)
-            return;
+    // the bitmap of the answers of one window, cleared for numOfQueries bits, which is reused by the following windows
+    long[] clearedBitmap(int numOfQueries) {
+        int len = (numOfQueries + Long.SIZE - 1) >>> 6;
+        if (bitmap.length < len)
+            bitmap = new long[Math.max(len, bitmap.length << 1)];
+        else
+            Arrays.fill(bitmap, 0, len, 0L);
+        return bitmap;
+    }
 
-        Iterator<StreamingEdge> streamingEdgeIterator = inputStream.iterator();
-        StreamingEdge streamingEdge = streamingEdgeIterator.next();
+    // a query that is registered during a run is answered from the next window on, such that its output stream starts empty
+    private static void addOutputStreams(List<List<Boolean>> outputStreams, int numOfQueries) {
+        while (outputStreams.size() < numOfQueries)
+            outputStreams.add(new ArrayList<>());
+    }
 
-        long startOfCurrentWindow = streamingEdge.timeStamp;
-        insert(streamingEdge);
+    // the answers of the registered queries are appended to their output streams, and unregistered slots are skipped
+    private static class OutputStreamsSink implements ResultSink {
+        private final List<IntIntPair> workload;
+        private final List<List<Boolean>> outputStreams;
 
-        while (streamingEdgeIterator.hasNext()) { // make the first window instance full
-            streamingEdge = streamingEdgeIterator.next();
-            if (streamingEdge.timeStamp - startOfCurrentWindow < range)
-                insert(streamingEdge);
-            else
-                break;
+        OutputStreamsSink(List<IntIntPair> workload, List<List<Boolean>> outputStreams) {
+            this.workload = workload;
+            this.outputStreams = outputStreams;
         }
 
-        query(workload, outputStreams);
-        startOfCurrentWindow += slide;
-        evict(startOfCurrentWindow); // first evict
-        insert(streamingEdge);
-
-        boolean isEnd = false;
-        long start = 0, end = 0;
+        @Override
+        public void accept(long startOfWindow, long[] answers, int numOfQueries) {
+            addOutputStreams(outputStreams, numOfQueries);
+            for (int i = 0; i < numOfQueries; i++)
+                if (workload.get(i) != null)
+                    outputStreams.get(i).add((answers[i >>> 6] & 1L << i) != 0);
+        }
 
-        while (streamingEdgeIterator.hasNext()) {
-            streamingEdge = streamingEdgeIterator.next();
-            if (streamingEdge.timeStamp - startOfCurrentWindow >= range) { // compute query result
-                isEnd = true;
+        @Override
+        public void acceptRepeated(long startOfWindow, long slide, long numOfWindows, long[] answers, int numOfQueries) {
+            addOutputStreams(outputStreams, numOfQueries);
+            for (int i = 0; i < numOfQueries; i++)
+                if (workload.get(i) != null)
+                    outputStreams.get(i).addAll(Collections.nCopies((int) numOfWindows, (answers[i >>> 6] & 1L << i) != 0));
+        }
+    }
 
-                start = System.nanoTime();
-                query(workload, outputStreams);
-                startOfCurrentWindow += slide;
-                evict(startOfCurrentWindow);
-            }
-            insert(streamingEdge);
+    // test only for latency experiments
+    public void computeSlidingWindowConnectivity(Collection<StreamingEdge> inputStream, List<List<Boolean>> outputStreams, List<Long> latencyPerEdge) {
+        if (inputStream.isEmpty())
+            return;
 
-            end = System.nanoTime();
+        final int num = outputStreams.size();
+        if (workload.size() != num)
+            return;
 
-            if (isEnd) {
-                latencyPerEdge.add(end - start);
-                isEnd = false;
+        ResultSink resultSink = new OutputStreamsSink(workload, outputStreams);
+        Iterator<StreamingEdge> streamingEdgeIterator = startRun(inputStream.iterator());
+        try {
+            StreamingEdge streamingEdge = streamingEdgeIterator.next();
+
+            long startOfCurrentWindow = startAt(streamingEdge.timeStamp), lastTimeStamp = streamingEdge.timeStamp;
+            if (streamingEdge.timeStamp - startOfCurrentWindow >= range)
+                startOfCurrentWindow = computeWindowsBefore(streamingEdge.timeStamp, startOfCurrentWindow, lastTimeStamp, resultSink);
+            if (streamingEdge.timeStamp >= startOfCurrentWindow)
+                apply(streamingEdge);
+
+            boolean isEnd = false;
+            long start = 0, end = 0;
+
+            while (streamingEdgeIterator.hasNext()) {
+                streamingEdge = streamingEdgeIterator.next();
+                if (streamingEdge.timeStamp - startOfCurrentWindow >= range) { // compute query result
+                    isEnd = true;
+
+                    start = System.nanoTime();
+                    startOfCurrentWindow = computeWindowsBefore(streamingEdge.timeStamp, startOfCurrentWindow, lastTimeStamp, resultSink);
+                }
+                if (streamingEdge.timeStamp >= startOfCurrentWindow && apply(streamingEdge)) // if the slide is larger than the range, edges between two windows are not in any window
+                    lastTimeStamp = streamingEdge.timeStamp;
+
+                end = System.nanoTime();
+
+                if (isEnd) {
+                    latencyPerEdge.add(end - start);
+                    isEnd = false;
+                }
             }
+        } finally {
+            endRun();
         }
     }
 
@@ -122,26 +259,54 @@ public abstract class AbstractSlidingWindowConnectivity {
         if (inputStream.isEmpty())
             return;
 
-        long startOfCurrentWindow = inputStream.peek().timeStamp;
-
-        while (!inputStream.isEmpty() && (inputStream.peek().timeStamp - startOfCurrentWindow) < range) // make the first window instance full
-            insert(inputStream.poll());
+        Iterator<StreamingEdge> streamingEdgeIterator = startRun(new Iterator<StreamingEdge>() { // the queue is drained
+            @Override
+            public boolean hasNext() {
+                return !inputStream.isEmpty();
+            }
 
-        outputStream.add(query(source, target));    // first window instance
-        startOfCurrentWindow += slide;
-        evict(startOfCurrentWindow); // first evict
+            @Override
+            public StreamingEdge next() {
+                return inputStream.poll();
+            }
+        });
+        try {
+            StreamingEdge first = streamingEdgeIterator.next();
+            long startOfCurrentWindow = startAt(first.timeStamp), lastTimeStamp = first.timeStamp;
+            startOfCurrentWindow = computeWindowsBefore(first.timeStamp, startOfCurrentWindow, lastTimeStamp, outputStream, source, target);
+            if (first.timeStamp >= startOfCurrentWindow)
+                apply(first);
+
+            while (streamingEdgeIterator.hasNext()) {
+                StreamingEdge streamingEdge = streamingEdgeIterator.next();
+                startOfCurrentWindow = computeWindowsBefore(streamingEdge.timeStamp, startOfCurrentWindow, lastTimeStamp, outputStream, source, target);
+                if (streamingEdge.timeStamp >= startOfCurrentWindow && apply(streamingEdge)) // if the slide is larger than the range, edges between two windows are not in any window
+                    lastTimeStamp = streamingEdge.timeStamp;
+            }
+        } finally {
+            endRun();
+        }
+    }
 
-        while (!inputStream.isEmpty()) {
-            StreamingEdge streamingEdge = inputStream.poll();
-            if (streamingEdge.timeStamp - startOfCurrentWindow >= range) { // compute query result
-                outputStream.add(query(source, target));
-                startOfCurrentWindow += slide;
+    // the single-query counterpart of computeWindowsBefore
+    private long computeWindowsBefore(long timeStamp, long startOfCurrentWindow, long lastTimeStamp, List<Boolean> outputStream, int source, int target) {
+        while (timeStamp - startOfCurrentWindow >= range) { // compute query result
+            outputStream.add(query(source, target));
+            boolean isEmpty = startOfCurrentWindow > lastTimeStamp;
+            startOfCurrentWindow += slide;
+            evict(startOfCurrentWindow);
+            if (isEmpty && timeStamp - startOfCurrentWindow >= range) { // the following windows before the edge are empty as well
+                long numOfWindows = (timeStamp - range - startOfCurrentWindow) / slide + 1;
+                outputStream.addAll(Collections.nCopies((int) numOfWindows, outputStream.get(outputStream.size() - 1)));
+                skipWindows(numOfWindows);
+                startOfCurrentWindow += numOfWindows * slide;
                 evict(startOfCurrentWindow);
             }
-            insert(streamingEdge);
         }
+        return startOfCurrentWindow;
     }
 
+    // the memory is captured for every window instance, so the windows in a gap are not skipped
     public void computeQueriesAndGetMemoryConsumption(Collection<StreamingEdge> inputStream, List<List<Boolean>> outputStreams, List<Long> memoryConsumptionPerWindow) {
         if (inputStream.isEmpty())
             return;
@@ -150,47 +315,112 @@ public abstract class AbstractSlidingWindowConnectivity {
         if (workload.size() != num)
             return;
 
-        Iterator<StreamingEdge> streamingEdgeIterator = inputStream.iterator();
-        StreamingEdge streamingEdge = streamingEdgeIterator.next();
-        long startOfCurrentWindow = streamingEdge.timeStamp;
-        insert(streamingEdge);
+        Iterator<StreamingEdge> streamingEdgeIterator = startRun(inputStream.iterator());
+        try {
+            StreamingEdge streamingEdge = streamingEdgeIterator.next();
+            long startOfCurrentWindow = startAt(streamingEdge.timeStamp);
+            startOfCurrentWindow = computeWindowsAndMemoryBefore(streamingEdge.timeStamp, startOfCurrentWindow, outputStreams, memoryConsumptionPerWindow);
+            if (streamingEdge.timeStamp >= startOfCurrentWindow)
+                apply(streamingEdge);
+
+            while (streamingEdgeIterator.hasNext()) {
+                streamingEdge = streamingEdgeIterator.next();
+                startOfCurrentWindow = computeWindowsAndMemoryBefore(streamingEdge.timeStamp, startOfCurrentWindow, outputStreams, memoryConsumptionPerWindow);
+                if (streamingEdge.timeStamp >= startOfCurrentWindow) // if the slide is larger than the range, edges between two windows are not in any window
+                    apply(streamingEdge);
+            }
+        } finally {
+            endRun();
+        }
+    }
+
+    private long computeWindowsAndMemoryBefore(long timeStamp, long startOfCurrentWindow, List<List<Boolean>> outputStreams, List<Long> memoryConsumptionPerWindow) {
+        while (timeStamp - startOfCurrentWindow >= range) { // compute query result
+            query(workload, outputStreams);
+            startOfCurrentWindow += slide;
+
+            memoryConsumptionPerWindow.add(memoryCalibration ? memoryConsumption() : estimatedMemoryConsumption()); // capturing the memory used
 
-        while (streamingEdgeIterator.hasNext()) { // make the first window instance full
-            streamingEdge = streamingEdgeIterator.next();
-            if (streamingEdge.timeStamp - startOfCurrentWindow < range)
-                insert(streamingEdge);
-            else
-                break;
+            evict(startOfCurrentWindow);
         }
+        return startOfCurrentWindow;
+    }
 
-        query(workload, outputStreams);
-        startOfCurrentWindow += slide;
-        evict(startOfCurrentWindow); // first evict
-        insert(streamingEdge);
+    // edges may arrive out of order by at most allowedLateness, they are staged per slide and inserted in timestamp order once the watermark passes,
+    // and an edge that is later than allowedLateness is dropped; the insert path of the implementations is unchanged
+    public void setAllowedLateness(Duration allowedLateness) {
+        this.allowedLateness = allowedLateness.toMillis();
+    }
 
+    // the number of edges of the last run that were later than the allowed lateness
+    public long getNumOfDroppedEdges() {
+        return reorderBuffer == null ? 0 : reorderBuffer.getNumOfDroppedEdges();
+    }
 
-        while (streamingEdgeIterator.hasNext()) {
-            streamingEdge = streamingEdgeIterator.next();
-            if (streamingEdge.timeStamp - startOfCurrentWindow >= range) { // compute query result
-                query(workload, outputStreams);
-                startOfCurrentWindow += slide;
+    private Iterator<StreamingEdge> ingest(Iterator<StreamingEdge> inputStream) {
+        ReorderBuffer reorderBuffer = newReorderBuffer(inputStream);
+        return reorderBuffer == null ? inputStream : reorderBuffer;
+    }
 
-                memoryConsumptionPerWindow.add(memoryConsumption()); // capturing the memory used
+    // the reorder buffer of a run, null if the edges are in timestamp order
+    ReorderBuffer newReorderBuffer(Iterator<StreamingEdge> inputStream) {
+        reorderBuffer = allowedLateness == 0 ? null : new ReorderBuffer(inputStream, allowedLateness, slide);
+        return reorderBuffer;
+    }
 
-                evict(startOfCurrentWindow);
-            }
-            insert(streamingEdge);
+    // returns true if the edge is inserted, and false if it is a deletion
+    boolean apply(StreamingEdge streamingEdge) {
+        if (streamingEdge.isDeletion) {
+            delete(streamingEdge);
+            return false;
         }
+        insert(streamingEdge);
+        return true;
+    }
+
+    // the first window starts at the first edge, which is only known after reordering if the edges are out of order
+    // implementations that track the window position from a given first timestamp move it here
+    // returns the start of the first window, which is the window of the checkpoint for an instance restored from a checkpoint
+    protected long startAt(long firstTimeStamp) {
+        return firstTimeStamp;
+    }
+
+    // the JOL walk can take longer than the window itself, such that it is only used to calibrate the estimates
+    public void setMemoryCalibration(boolean memoryCalibration) {
+        this.memoryCalibration = memoryCalibration;
+    }
+
+    // the next numOfWindows windows are empty and are not queried, implementations that track the window position advance it here
+    // the edges before the window after them are evicted afterwards
+    protected void skipWindows(long numOfWindows) {
     }
 
     public abstract void insert(StreamingEdge StreamingEdge);
 
+    // delete the occurrences of the edge in either direction that are in the window, i.e., that are not later than the deletion
+    public void delete(StreamingEdge streamingEdge) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support edge deletions");
+    }
+
     // evict all the streaming edges, whose timestamp are less than the lessThan time
     public abstract void evict(long lessThan);
 
     public abstract boolean query(int source, int target);
 
-    public abstract void query(List<IntIntPair> queries, List<List<Boolean>> outputStreams);
+    // the answers of the registered queries on the current window are written into the cleared bitmap, i.e., bit i is set iff the query in slot i is connected
+    public abstract void query(List<IntIntPair> queries, long[] answers);
+
+    // the answers of the registered queries are appended to their output streams
+    public void query(List<IntIntPair> queries, List<List<Boolean>> outputStreams) {
+        int num = queries.size();
+        long[] answers = clearedBitmap(num);
+        query(queries, answers);
+        addOutputStreams(outputStreams, num);
+        for (int i = 0; i < num; i++)
+            if (queries.get(i) != null) // skip unregistered queries
+                outputStreams.get(i).add((answers[i >>> 6] & 1L << i) != 0);
+    }
 
+    // the exact memory consumption, measured by walking the object graph with JOL
     public abstract long memoryConsumption();
 }
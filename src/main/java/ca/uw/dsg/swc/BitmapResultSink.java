@@ -0,0 +1,136 @@
+package ca.uw.dsg.swc;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// keeps the answers of every window as its bitmap, i.e., (numOfQueries + 63) / 64 words per window instead of a boxed value per query and window
+// the words are appended to an array that grows by doubling, or, if a file is given, spilled into a memory-mapped file region by region,
+// such that the results of a long run are not kept on the heap; the windows of a gap share the words of the first one
+// the words are only appended, so a region is forced to the file once the next one is mapped, and the last one on close
+public class BitmapResultSink implements ResultSink, MemoryAccountable, Closeable {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int WORDS_PER_REGION_SHIFT = 20; // the file is mapped in regions of 8 MB, and a word never spans two regions
+
+    private long[] words; // null if the words are spilled
+    private final FileChannel channel; // null if the words are kept in memory
+    private final List<MappedByteBuffer> regions;
+    private long numOfWords;
+
+    // per window
+    private final LongArrayList startsOfWindows;
+    private final LongArrayList offsets; // the position of the first word of the bitmap of a window
+    private final IntArrayList numsOfQueries;
+
+    public BitmapResultSink() {
+        this.words = new long[INITIAL_CAPACITY];
+        this.channel = null;
+        this.regions = null;
+        this.startsOfWindows = new LongArrayList();
+        this.offsets = new LongArrayList();
+        this.numsOfQueries = new IntArrayList();
+    }
+
+    // the file is created, or truncated if it exists
+    public BitmapResultSink(Path file) throws IOException {
+        this.words = null;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.regions = new ArrayList<>();
+        this.startsOfWindows = new LongArrayList();
+        this.offsets = new LongArrayList();
+        this.numsOfQueries = new IntArrayList();
+    }
+
+    @Override
+    public void accept(long startOfWindow, long[] answers, int numOfQueries) {
+        startsOfWindows.add(startOfWindow);
+        offsets.add(numOfWords);
+        numsOfQueries.add(numOfQueries);
+        int len = (numOfQueries + Long.SIZE - 1) >>> 6;
+        if (words != null) {
+            if (numOfWords + len > words.length)
+                words = Arrays.copyOf(words, (int) Math.max(numOfWords + len, (long) words.length << 1));
+            System.arraycopy(answers, 0, words, (int) numOfWords, len);
+        } else
+            for (int i = 0; i < len; i++)
+                put(numOfWords + i, answers[i]);
+        numOfWords += len;
+    }
+
+    @Override
+    public void acceptRepeated(long startOfWindow, long slide, long numOfWindows, long[] answers, int numOfQueries) {
+        long offset = offsets.getLong(offsets.size() - 1); // the bitmap of the last window, whose answers are repeated
+        for (long i = 0; i < numOfWindows; i++) {
+            startsOfWindows.add(startOfWindow + i * slide);
+            offsets.add(offset);
+            numsOfQueries.add(numOfQueries);
+        }
+    }
+
+    public int getNumOfWindows() {
+        return offsets.size();
+    }
+
+    public long getStartOfWindow(int window) {
+        return startsOfWindows.getLong(window);
+    }
+
+    public int getNumOfQueries(int window) {
+        return numsOfQueries.getInt(window);
+    }
+
+    public boolean isConnected(int window, int slot) {
+        return (get(offsets.getLong(window) + (slot >>> 6)) & 1L << slot) != 0;
+    }
+
+    // copies the bitmap of the window into answers, which has at least (getNumOfQueries(window) + 63) / 64 words
+    public void getAnswers(int window, long[] answers) {
+        long offset = offsets.getLong(window);
+        for (int i = 0, len = (numsOfQueries.getInt(window) + Long.SIZE - 1) >>> 6; i < len; i++)
+            answers[i] = get(offset + i);
+    }
+
+    private void put(long position, long word) {
+        int region = (int) (position >>> WORDS_PER_REGION_SHIFT);
+        try {
+            while (regions.size() <= region) { // the file is extended by the mapping
+                if (!regions.isEmpty())
+                    regions.get(regions.size() - 1).force();
+                regions.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) regions.size() << (WORDS_PER_REGION_SHIFT + 3), 1L << (WORDS_PER_REGION_SHIFT + 3)));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        regions.get(region).putLong((int) (position & ((1 << WORDS_PER_REGION_SHIFT) - 1)) << 3, word);
+    }
+
+    private long get(long position) {
+        if (words != null)
+            return words[(int) position];
+        return regions.get((int) (position >>> WORDS_PER_REGION_SHIFT)).getLong((int) (position & ((1 << WORDS_PER_REGION_SHIFT) - 1)) << 3);
+    }
+
+    // the words on the heap, and the per-window positions, the mapped regions of a spilled sink are not counted
+    @Override
+    public long estimatedMemoryConsumption() {
+        return (words == null ? 0 : (long) words.length * Long.BYTES) + (long) offsets.size() * (2 * Long.BYTES + Integer.BYTES);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null || !channel.isOpen())
+            return;
+        if (!regions.isEmpty())
+            regions.get(regions.size() - 1).force();
+        channel.close();
+    }
+}
@@ -0,0 +1,60 @@
+package ca.uw.dsg.swc;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.Arrays;
+
+// reports the slots of the workload whose answers flipped since the previous window, which are found by XOR-ing the bitmaps of consecutive windows
+// word by word, i.e., in time linear in the number of words plus the number of flips; a window without a flip, e.g., an empty window of a gap, is not reported
+// every answer is false before the first window, such that the first report contains the connected queries, and so is the answer of a slot before
+// its query is registered, such that a query that is unregistered is not reported, and a query in a reused slot is reported once it is connected
+public class DeltaResultSink implements ResultSink {
+    private final AbstractSlidingWindowConnectivity swc;
+    private final Listener listener;
+    private long[] previous; // the answers of the previous window, the words after the ones of its queries are clear
+    private final IntArrayList flippedSlots;
+
+    // swc is the implementation whose windows are written into the sink, see AbstractSlidingWindowConnectivity.clearChangedSlots
+    public DeltaResultSink(AbstractSlidingWindowConnectivity swc, Listener listener) {
+        this.swc = swc;
+        this.listener = listener;
+        this.previous = new long[0];
+        this.flippedSlots = new IntArrayList();
+    }
+
+    @Override
+    public void accept(long startOfWindow, long[] answers, int numOfQueries) {
+        int len = (numOfQueries + Long.SIZE - 1) >>> 6;
+        flippedSlots.clear();
+        swc.clearChangedSlots(previous);
+        addFlippedSlots(previous, answers, numOfQueries, flippedSlots);
+        if (previous.length < len)
+            previous = Arrays.copyOf(previous, Math.max(len, previous.length << 1));
+        System.arraycopy(answers, 0, previous, 0, len);
+        if (!flippedSlots.isEmpty())
+            listener.accept(startOfWindow, flippedSlots.elements(), flippedSlots.size(), answers);
+    }
+
+    // the following windows have the answers of the first one, so only the first one can have flips
+    @Override
+    public void acceptRepeated(long startOfWindow, long slide, long numOfWindows, long[] answers, int numOfQueries) {
+        accept(startOfWindow, answers, numOfQueries);
+    }
+
+    // adds the slots whose bits differ in ascending order, where the words after the ones of previous are clear
+    static void addFlippedSlots(long[] previous, long[] answers, int numOfQueries, IntArrayList flippedSlots) {
+        for (int i = 0, len = (numOfQueries + Long.SIZE - 1) >>> 6; i < len; i++) {
+            long flips = answers[i] ^ (i < previous.length ? previous[i] : 0L);
+            while (flips != 0) {
+                flippedSlots.add(i << 6 | Long.numberOfTrailingZeros(flips));
+                flips &= flips - 1; // clear the lowest flip
+            }
+        }
+    }
+
+    public interface Listener {
+        // the first numOfFlippedSlots elements of flippedSlots are the slots whose answers flipped, in ascending order, and bit i of answers is the new answer of slot i;
+        // both arrays are reused for the following windows
+        void accept(long startOfWindow, int[] flippedSlots, int numOfFlippedSlots, long[] answers);
+    }
+}
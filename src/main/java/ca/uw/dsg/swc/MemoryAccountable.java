@@ -0,0 +1,37 @@
+package ca.uw.dsg.swc;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+// an index that maintains an estimate of its own footprint in O(1), i.e., the number of entries times the cost of an entry
+// the costs assume a 64-bit JVM with compressed references, and can be calibrated against a JOL walk of the object graph
+public interface MemoryAccountable {
+    int OBJECT_HEADER = 12;
+    int REFERENCE = 4;
+    int ARRAY_HEADER = 16;
+    int OBJECT_ALIGNMENT = 8; // the size of an object is padded to a multiple of it
+    float LOAD_FACTOR = 0.75f; // the default load factor of the hash maps and sets
+
+    int HASH_MAP = 48; // an empty java.util.HashMap, without its table, i.e., header, size, modCount, threshold, loadFactor and four references
+    int HASH_MAP_TABLE = 16 + 16 * 4; // the table of a non-empty java.util.HashMap with at most 12 entries, i.e., its initial capacity of 16
+    int HASH_MAP_NODE = 32; // a node of java.util.HashMap, i.e., header, hash, key, value and next
+    int OPEN_HASH_MAP = 64; // an empty open-addressing map of fastutil, without its key and value arrays
+
+    // the footprint in bytes
+    long estimatedMemoryConsumption();
+
+    // the size of an object whose header and fields take size bytes
+    static long aligned(long size) {
+        return (size + OBJECT_ALIGNMENT - 1) & -OBJECT_ALIGNMENT;
+    }
+
+    // the key and value arrays of an open-addressing map of fastutil with size entries, bytesPerSlot bytes per slot
+    // the arrays have a power-of-two number of slots plus the slot of the null key, as the map is rehashed at the load factor
+    static long openHashMapSlots(int size, int bytesPerSlot) {
+        return 2L * ARRAY_HEADER + (long) (HashCommon.arraySize(size, LOAD_FACTOR) + 1) * bytesPerSlot;
+    }
+
+    // the nodes of a java.util.HashMap or HashSet with size entries, and the slots of its power-of-two table of at least 16 slots
+    static long hashMapEntries(long size) {
+        return size * HASH_MAP_NODE + (size == 0 ? 0 : ARRAY_HEADER + Math.max(16, HashCommon.nextPowerOfTwo((long) Math.ceil(size / LOAD_FACTOR))) * REFERENCE);
+    }
+}
@@ -0,0 +1,105 @@
+package ca.uw.dsg.swc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// releases the edges of a stream that is out of order by at most allowedLateness in timestamp order
+// the watermark is the largest timestamp seen minus allowedLateness, and no edge earlier than the watermark is expected anymore;
+// staged edges are bucketed per slide, and a bucket is sorted and released once the watermark passes its end,
+// such that the windows of the consumer are only finalized after the watermark; an edge of a released slide is too late and dropped
+public class ReorderBuffer implements Iterator<StreamingEdge> {
+    private static final Comparator<StreamingEdge> BY_TIME_STAMP = Comparator.comparingLong(e -> e.timeStamp);
+
+    private final Iterator<StreamingEdge> inputStream;
+    private final long allowedLateness, slide;
+
+    private final List<ArrayList<StreamingEdge>> buckets; // a ring of buckets, the bucket of slide s is buckets.get(s % buckets.size())
+    private long nextSlideToRelease; // the slides before it are released
+    private long maxTimeStamp;
+    private boolean started;
+    private final ArrayDeque<StreamingEdge> released;
+    private long numOfDroppedEdges;
+
+    public ReorderBuffer(Iterator<StreamingEdge> inputStream, long allowedLateness, long slide) {
+        this.inputStream = inputStream;
+        this.allowedLateness = allowedLateness;
+        this.slide = slide;
+        // the slide of a staged edge is less than allowedLateness / slide + 1 slides after the next slide to release
+        int numOfBuckets = (int) (allowedLateness / slide) + 2;
+        this.buckets = new ArrayList<>(numOfBuckets);
+        for (int i = 0; i < numOfBuckets; i++)
+            buckets.add(new ArrayList<>());
+        this.released = new ArrayDeque<>();
+    }
+
+    public long getNumOfDroppedEdges() {
+        return numOfDroppedEdges;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (released.isEmpty() && inputStream.hasNext())
+            stage(inputStream.next());
+        if (released.isEmpty()) // the end of the stream
+            releaseAll();
+        return !released.isEmpty();
+    }
+
+    @Override
+    public StreamingEdge next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return released.poll();
+    }
+
+    // the push counterparts of next for a stream that is not pulled from an iterator, see SlidingWindowConnectivityProcessor
+    void offer(StreamingEdge streamingEdge) {
+        stage(streamingEdge);
+    }
+
+    // the next released edge, null if no edge is released
+    StreamingEdge poll() {
+        return released.poll();
+    }
+
+    // the end of the stream, every staged edge is released
+    void releaseAll() {
+        releaseSlidesBefore(nextSlideToRelease + buckets.size());
+    }
+
+    private void stage(StreamingEdge streamingEdge) {
+        long slideOfEdge = Math.floorDiv(streamingEdge.timeStamp, slide);
+        if (!started) {
+            started = true;
+            maxTimeStamp = streamingEdge.timeStamp;
+            nextSlideToRelease = Math.floorDiv(streamingEdge.timeStamp - allowedLateness, slide);
+        }
+        if (streamingEdge.timeStamp > maxTimeStamp) {
+            maxTimeStamp = streamingEdge.timeStamp;
+            // a slide is complete if its last timestamp is before the watermark, as an edge at the watermark is still expected
+            releaseSlidesBefore(Math.floorDiv(maxTimeStamp - allowedLateness, slide));
+        }
+        if (slideOfEdge < nextSlideToRelease) {
+            numOfDroppedEdges++;
+            return;
+        }
+        buckets.get((int) Math.floorMod(slideOfEdge, (long) buckets.size())).add(streamingEdge);
+    }
+
+    // a gap in the timestamps may span many slides, but only the slides of the ring can have staged edges
+    private void releaseSlidesBefore(long slideNumber) {
+        for (long end = Math.min(slideNumber, nextSlideToRelease + buckets.size()); nextSlideToRelease < end; nextSlideToRelease++) {
+            ArrayList<StreamingEdge> bucket = buckets.get((int) Math.floorMod(nextSlideToRelease, (long) buckets.size()));
+            if (bucket.isEmpty())
+                continue;
+            bucket.sort(BY_TIME_STAMP); // stable, such that edges with the same timestamp keep their arrival order
+            released.addAll(bucket);
+            bucket.clear();
+        }
+        nextSlideToRelease = Math.max(nextSlideToRelease, slideNumber);
+    }
+}
@@ -0,0 +1,14 @@
+package ca.uw.dsg.swc;
+
+// receives the answers of the workload window by window, as a bitmap over the slots of the workload, i.e., one bit per query instead of a boxed value
+public interface ResultSink {
+    // the answers of the window starting at startOfWindow, where bit i of answers is set iff the query in slot i is connected,
+    // and is clear for an unregistered slot; the bitmap is reused by the caller for the following windows
+    void accept(long startOfWindow, long[] answers, int numOfQueries);
+
+    // the numOfWindows windows starting at startOfWindow, one slide apart, have the same answers, e.g., the empty windows of a gap in the timestamps
+    default void acceptRepeated(long startOfWindow, long slide, long numOfWindows, long[] answers, int numOfQueries) {
+        for (long i = 0; i < numOfWindows; i++)
+            accept(startOfWindow + i * slide, answers, numOfQueries);
+    }
+}
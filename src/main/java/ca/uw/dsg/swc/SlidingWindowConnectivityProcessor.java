@@ -0,0 +1,361 @@
+package ca.uw.dsg.swc;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// a reactive front-end of an implementation, which ingests the edges of a publisher and publishes the result of every window in the order of the windows
+// the edges are requested from the publisher in batches, and the next batch is only requested while the results of less than capacity windows are buffered,
+// such that a subscriber that lags behind holds back the ingest, instead of the results growing without bound
+// the windows have the semantics of computeSlidingWindowConnectivity, i.e., the first window starts at the first edge, a window is closed by the first edge
+// after it, and the windows that are open at the end of the stream are not published; the empty windows of a gap are buffered as one run
+// the signals of the publisher are serialized as per the Flow specification, and the subscriber can request and cancel from any thread;
+// the windows are computed under a lock of their own, such that the lock of the processor only guards the buffered results and the demand
+public class SlidingWindowConnectivityProcessor implements Flow.Processor<StreamingEdge, WindowResult> {
+    private static final int DEFAULT_BATCH_SIZE = 1 << 10, DEFAULT_CAPACITY = 1 << 10;
+
+    private final AbstractSlidingWindowConnectivity swc;
+    private final int batchSize, capacity;
+
+    // the window position of the run, guarded by ingestLock as a query can be registered by another thread than the one of the publisher
+    private final Object ingestLock;
+    private boolean isStarted;
+    private long startOfCurrentWindow, lastTimeStamp;
+    private ReorderBuffer reorderBuffer; // null if the edges are in timestamp order
+    private boolean deltaEmission;
+    private long[] previousAnswers; // the answers of the previous window in the delta mode
+    private final IntArrayList flippedSlots;
+    private final ArrayDeque<Run> computedRuns; // the results of an edge, which are moved to runs under the lock of the processor
+
+    private final ArrayDeque<Run> runs; // the results that are not published yet
+    private Flow.Subscription upstream;
+    private Flow.Subscriber<? super WindowResult> downstream;
+    private long demand; // the results requested by the subscriber that are not published yet
+    private long numOfRequestedEdges; // the edges requested from the publisher that are not received yet
+    private boolean isUpstreamDone, isCancelled, isTerminated;
+    private Throwable error;
+    private final AtomicInteger wip; // the results are published by one thread at a time, which drains again if another thread signalled meanwhile
+
+    public SlidingWindowConnectivityProcessor(AbstractSlidingWindowConnectivity swc) {
+        this(swc, DEFAULT_BATCH_SIZE, DEFAULT_CAPACITY);
+    }
+
+    public SlidingWindowConnectivityProcessor(AbstractSlidingWindowConnectivity swc, int batchSize, int capacity) {
+        if (batchSize <= 0 || capacity <= 0)
+            throw new IllegalArgumentException("The batch size and the capacity must be positive");
+        this.swc = swc;
+        this.batchSize = batchSize;
+        this.capacity = capacity;
+        this.runs = new ArrayDeque<>();
+        this.previousAnswers = new long[0];
+        this.flippedSlots = new IntArrayList();
+        this.ingestLock = new Object();
+        this.computedRuns = new ArrayDeque<>();
+        this.wip = new AtomicInteger();
+    }
+
+    // in the delta mode, a result carries the slots whose answers flipped since the previous window, and a window without a flip is not published,
+    // e.g., the empty windows of a gap after the first one; the flips are found by XOR-ing the bitmaps of consecutive windows, see DeltaResultSink
+    // the mode can only be changed before the first edge
+    public void setDeltaEmission(boolean deltaEmission) {
+        synchronized (ingestLock) {
+            if (isStarted)
+                throw new IllegalStateException("The delta mode can only be changed before the first edge");
+            this.deltaEmission = deltaEmission;
+        }
+    }
+
+    // a standing query is registered between two edges of the publisher, and is answered from the next window on
+    // returns the slot of the query, see AbstractSlidingWindowConnectivity.registerQuery
+    public int registerQuery(int source, int target) {
+        synchronized (ingestLock) {
+            return swc.registerQuery(source, target);
+        }
+    }
+
+    // the slot is false in the results of the following windows
+    public void unregisterQuery(int slot) {
+        synchronized (ingestLock) {
+            swc.unregisterQuery(slot);
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super WindowResult> subscriber) {
+        boolean isAccepted;
+        synchronized (this) {
+            isAccepted = downstream == null;
+            if (isAccepted)
+                downstream = subscriber;
+        }
+        if (!isAccepted) { // the results are published once, to a single subscriber
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The processor has a subscriber already"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    synchronized (SlidingWindowConnectivityProcessor.this) {
+                        error = new IllegalArgumentException("The number of requested results must be positive");
+                        isUpstreamDone = true;
+                        runs.clear();
+                    }
+                    cancelUpstream();
+                } else
+                    synchronized (SlidingWindowConnectivityProcessor.this) {
+                        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n; // unbounded once it overflows
+                    }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                synchronized (SlidingWindowConnectivityProcessor.this) {
+                    isCancelled = true;
+                    runs.clear();
+                }
+                cancelUpstream();
+            }
+        });
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (this) {
+            if (upstream != null || isCancelled) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+        }
+        synchronized (ingestLock) {
+            reorderBuffer = swc.newReorderBuffer(Collections.emptyIterator());
+        }
+        requestEdges();
+    }
+
+    @Override
+    public void onNext(StreamingEdge streamingEdge) {
+        synchronized (this) {
+            numOfRequestedEdges--;
+            if (isCancelled || isUpstreamDone)
+                return;
+        }
+        boolean isFailed;
+        synchronized (ingestLock) {
+            RuntimeException failure = null;
+            try {
+                if (reorderBuffer == null)
+                    ingest(streamingEdge);
+                else {
+                    reorderBuffer.offer(streamingEdge);
+                    for (StreamingEdge released = reorderBuffer.poll(); released != null; released = reorderBuffer.poll())
+                        ingest(released);
+                }
+            } catch (RuntimeException e) { // e.g., a deletion for an implementation that does not support deletions
+                failure = e;
+            }
+            isFailed = publishComputedRuns(failure, false);
+        }
+        if (isFailed)
+            cancelUpstream();
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        synchronized (this) {
+            if (isUpstreamDone)
+                return;
+            error = throwable;
+            isUpstreamDone = true;
+        }
+        drain();
+    }
+
+    // the staged edges are ingested, and the subscriber is completed once the buffered results are published
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            if (isUpstreamDone)
+                return;
+        }
+        synchronized (ingestLock) {
+            RuntimeException failure = null;
+            try {
+                if (reorderBuffer != null) {
+                    reorderBuffer.releaseAll();
+                    for (StreamingEdge released = reorderBuffer.poll(); released != null; released = reorderBuffer.poll())
+                        ingest(released);
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            publishComputedRuns(failure, true);
+        }
+        drain();
+    }
+
+    // moves the results of the ingested edges to the buffered results, unless the subscriber cancelled or the processor failed meanwhile,
+    // returns whether the ingest failed, such that the publisher is cancelled
+    private boolean publishComputedRuns(RuntimeException failure, boolean isComplete) {
+        synchronized (this) {
+            if (isCancelled || isUpstreamDone) {
+                computedRuns.clear();
+                return false;
+            }
+            runs.addAll(computedRuns);
+            computedRuns.clear();
+            if (failure != null)
+                error = failure;
+            isUpstreamDone = failure != null || isComplete;
+            return failure != null;
+        }
+    }
+
+    // the counterpart of the loop of computeSlidingWindowConnectivity for one edge, under ingestLock
+    private void ingest(StreamingEdge streamingEdge) {
+        if (!isStarted) {
+            isStarted = true;
+            startOfCurrentWindow = swc.startAt(streamingEdge.timeStamp);
+            lastTimeStamp = streamingEdge.timeStamp;
+        }
+        if (streamingEdge.timeStamp - startOfCurrentWindow >= swc.range)
+            computeWindowsBefore(streamingEdge.timeStamp);
+        if (streamingEdge.timeStamp >= startOfCurrentWindow && swc.apply(streamingEdge)) // if the slide is larger than the range, edges between two windows are not in any window
+            lastTimeStamp = streamingEdge.timeStamp;
+    }
+
+    // once a queried window is empty, the following windows before the timestamp are empty as well, so they are skipped in O(1) and buffered as one run
+    private void computeWindowsBefore(long timeStamp) {
+        while (timeStamp - startOfCurrentWindow >= swc.range) {
+            Run run = queryWindow();
+            boolean isEmpty = startOfCurrentWindow > lastTimeStamp;
+            startOfCurrentWindow += swc.slide;
+            swc.evict(startOfCurrentWindow);
+            if (isEmpty && timeStamp - startOfCurrentWindow >= swc.range) {
+                long numOfWindows = (timeStamp - swc.range - startOfCurrentWindow) / swc.slide + 1;
+                swc.skipWindows(numOfWindows);
+                if (!deltaEmission) // the following windows have the answers of the first one, i.e., no flips
+                    run.numOfWindows += numOfWindows;
+                startOfCurrentWindow += numOfWindows * swc.slide;
+                swc.evict(startOfCurrentWindow);
+            }
+            if (run.flippedSlots == null || run.flippedSlots.length > 0)
+                computedRuns.add(run);
+        }
+    }
+
+    // a new bitmap per window, as the result is published after the following windows are computed
+    private Run queryWindow() {
+        int num = swc.workload.size();
+        long[] answers = new long[(num + Long.SIZE - 1) >>> 6];
+        swc.query(swc.workload, answers);
+        if (!deltaEmission)
+            return new Run(startOfCurrentWindow, answers, num, null);
+        flippedSlots.clear();
+        long[] previous = previousAnswers.clone(); // the bitmap is published with the previous result
+        swc.clearChangedSlots(previous);
+        DeltaResultSink.addFlippedSlots(previous, answers, num, flippedSlots);
+        previousAnswers = answers;
+        return new Run(startOfCurrentWindow, answers, num, flippedSlots.toIntArray());
+    }
+
+    // the next batch is requested once the previous one is received, and only while the buffered results are below the capacity
+    private void requestEdges() {
+        Flow.Subscription subscription;
+        synchronized (this) {
+            if (upstream == null || isUpstreamDone || isCancelled || numOfRequestedEdges > 0 || runs.size() >= capacity)
+                return;
+            numOfRequestedEdges = batchSize;
+            subscription = upstream;
+        }
+        subscription.request(batchSize);
+    }
+
+    private void cancelUpstream() {
+        Flow.Subscription subscription;
+        synchronized (this) {
+            subscription = upstream;
+        }
+        if (subscription != null)
+            subscription.cancel();
+    }
+
+    // the signals to the subscriber are not sent under the lock, such that it can request from onNext, and the publisher is not blocked meanwhile
+    private void drain() {
+        if (wip.getAndIncrement() != 0)
+            return;
+        do {
+            while (true) {
+                Flow.Subscriber<? super WindowResult> subscriber;
+                WindowResult result = null;
+                Throwable terminalError = null;
+                synchronized (this) {
+                    subscriber = downstream;
+                    if (subscriber == null || isCancelled || isTerminated)
+                        break;
+                    if (!runs.isEmpty() && error == null) {
+                        if (demand == 0)
+                            break;
+                        demand--;
+                        Run run = runs.peek();
+                        result = run.next(swc.range, swc.slide);
+                        if (run.numOfWindows == 0)
+                            runs.poll();
+                    } else if (isUpstreamDone) { // an error is signalled without publishing the buffered results
+                        isTerminated = true;
+                        terminalError = error;
+                        runs.clear();
+                    } else
+                        break;
+                }
+                if (result != null)
+                    subscriber.onNext(result);
+                else if (terminalError != null)
+                    subscriber.onError(terminalError);
+                else
+                    subscriber.onComplete();
+            }
+        } while (wip.decrementAndGet() != 0);
+        requestEdges();
+    }
+
+    // the results of consecutive windows with the same answers
+    private static class Run {
+        private long startOfWindow;
+        private final long[] answers;
+        private final int numOfQueries;
+        private final int[] flippedSlots; // null if not in the delta mode
+        private long numOfWindows;
+
+        Run(long startOfWindow, long[] answers, int numOfQueries, int[] flippedSlots) {
+            this.startOfWindow = startOfWindow;
+            this.answers = answers;
+            this.numOfQueries = numOfQueries;
+            this.flippedSlots = flippedSlots;
+            this.numOfWindows = 1;
+        }
+
+        WindowResult next(long range, long slide) {
+            WindowResult ret = new WindowResult(startOfWindow, startOfWindow + range, answers, numOfQueries, flippedSlots);
+            startOfWindow += slide;
+            numOfWindows--;
+            return ret;
+        }
+    }
+}
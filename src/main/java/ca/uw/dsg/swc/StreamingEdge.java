@@ -3,11 +3,17 @@ package ca.uw.dsg.swc;
 public class StreamingEdge {
     public final int source, target;
     public final long timeStamp;
+    public final boolean isDeletion; // a negative tuple, which deletes the earlier occurrences of the edge in either direction
 
     public StreamingEdge(int source, int target, long timeStamp) {
+        this(source, target, timeStamp, false);
+    }
+
+    public StreamingEdge(int source, int target, long timeStamp, boolean isDeletion) {
         this.source = source;
         this.target = target;
         this.timeStamp = timeStamp;
+        this.isDeletion = isDeletion;
     }
 
     @Override
@@ -16,6 +22,7 @@ public class StreamingEdge {
                 "source=" + source +
                 ", target=" + target +
                 ", timeStamp=" + timeStamp +
+                ", isDeletion=" + isDeletion +
                 '}';
     }
 }
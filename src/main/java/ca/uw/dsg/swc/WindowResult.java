@@ -0,0 +1,49 @@
+package ca.uw.dsg.swc;
+
+// the answers of the workload on the window instance [startOfWindow, endOfWindow)
+// the answer of slot i is the one that computeSlidingWindowConnectivity appends to output stream i, and false for an unregistered slot
+public class WindowResult {
+    public final long startOfWindow, endOfWindow;
+    private final long[] answers; // bit i is the answer of slot i, shared by the empty windows of a gap, which have the same answers
+    private final int numOfQueries;
+    private final int[] flippedSlots; // the slots whose answers flipped since the previous window in ascending order, null if not in the delta mode
+
+    WindowResult(long startOfWindow, long endOfWindow, long[] answers, int numOfQueries, int[] flippedSlots) {
+        this.startOfWindow = startOfWindow;
+        this.endOfWindow = endOfWindow;
+        this.answers = answers;
+        this.numOfQueries = numOfQueries;
+        this.flippedSlots = flippedSlots;
+    }
+
+    public int getNumOfQueries() {
+        return numOfQueries;
+    }
+
+    public boolean isConnected(int slot) {
+        return (answers[slot >>> 6] & 1L << slot) != 0;
+    }
+
+    // see SlidingWindowConnectivityProcessor.setDeltaEmission
+    public int getNumOfFlippedSlots() {
+        if (flippedSlots == null)
+            throw new IllegalStateException("The result is not emitted in the delta mode");
+        return flippedSlots.length;
+    }
+
+    public int getFlippedSlot(int i) {
+        if (flippedSlots == null)
+            throw new IllegalStateException("The result is not emitted in the delta mode");
+        return flippedSlots[i];
+    }
+
+    @Override
+    public String toString() {
+        return "WindowResult{" +
+                "startOfWindow=" + startOfWindow +
+                ", endOfWindow=" + endOfWindow +
+                ", numOfQueries=" + numOfQueries +
+                (flippedSlots == null ? "" : ", numOfFlippedSlots=" + flippedSlots.length) +
+                '}';
+    }
+}
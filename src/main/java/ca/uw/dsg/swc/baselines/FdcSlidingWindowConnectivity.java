@@ -48,12 +48,21 @@ public class FdcSlidingWindowConnectivity extends AbstractSlidingWindowConnectiv
     }
 
     @Override
-    public void query(List<IntIntPair> workload, List<List<Boolean>> outputStreams) {
-        for (int i = 0, num = workload.size(); i < num; i++)
-            outputStreams.get(i).add(query(workload.get(i).firstInt(), workload.get(i).secondInt()));
+    public void query(List<IntIntPair> workload, long[] answers) {
+        for (int i = 0, num = workload.size(); i < num; i++) {
+            IntIntPair intIntPair = workload.get(i);
+            if (intIntPair != null && query(intIntPair.firstInt(), intIntPair.secondInt())) // skip unregistered queries
+                answers[i >>> 6] |= 1L << i;
+        }
 //        System.out.println("Number of edges in the window: " + window.size());
     }
 
+    // the same scope as memoryConsumption(), i.e., the index without the edges of the window
+    @Override
+    public long estimatedMemoryConsumption() {
+        return fdc.estimatedMemoryConsumption();
+    }
+
     @Override
     public long memoryConsumption() {
         return GraphLayout.parseInstance(fdc).totalSize();
@@ -1,7 +1,8 @@
 package ca.uw.dsg.swc.baselines;
 
+import ca.uw.dsg.swc.MemoryAccountable;
 
-public interface FullyDynamicConnectivity {
+public interface FullyDynamicConnectivity extends MemoryAccountable {
 
     boolean connected(int source, int target);
 
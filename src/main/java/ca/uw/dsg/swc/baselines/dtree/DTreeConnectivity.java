@@ -1,5 +1,6 @@
 package ca.uw.dsg.swc.baselines.dtree;
 
+import ca.uw.dsg.swc.MemoryAccountable;
 import ca.uw.dsg.swc.baselines.FullyDynamicConnectivity;
 import it.unimi.dsi.fastutil.Pair;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
@@ -7,6 +8,9 @@ import org.openjdk.jol.info.GraphLayout;
 
 public class DTreeConnectivity implements FullyDynamicConnectivity {
     private final Int2ObjectOpenHashMap<DTNode> nodeHashMap;
+    private long numOfEdges; // tree and non-tree edges, each is estimated to take two entries of the sets of children and non-tree edges
+
+    private static final int DT_NODE = 32 + 2 * (16 + MemoryAccountable.HASH_MAP + MemoryAccountable.HASH_MAP_TABLE); // the node and its sets of children and non-tree edges, whose tables are rarely grown
 
     public DTreeConnectivity() {
         this.nodeHashMap = new Int2ObjectOpenHashMap<>();
@@ -41,9 +45,11 @@ public class DTreeConnectivity implements FullyDynamicConnectivity {
 
         if (!s_r.equals(t_r)) { // not connected
             DTreeUtils.insertTE(s, t, s_r, t_r);
+            numOfEdges++;
         } else { // connected
             if (!(s.parent == t || t.parent == s)) {
                 DTreeUtils.insertNTE(s_r, s, s_distance, t, t_distance);
+                numOfEdges++;
             }
         }
     }
@@ -56,6 +62,7 @@ public class DTreeConnectivity implements FullyDynamicConnectivity {
         if (s == null || t == null) // in the case of trying to delete an edge of vertices that have already been deleted when the window is sliding
             return;
 
+        numOfEdges--;
         if (s.parent == t || t.parent == s) { // deleting tree edge
             DTreeUtils.deleteTe(s, t);
         } else {  // deleting tree edge
@@ -72,6 +79,13 @@ public class DTreeConnectivity implements FullyDynamicConnectivity {
 
 
 
+    @Override
+    public long estimatedMemoryConsumption() {
+        return OPEN_HASH_MAP + MemoryAccountable.openHashMapSlots(nodeHashMap.size(), Integer.BYTES + REFERENCE)
+                + (long) nodeHashMap.size() * DT_NODE
+                + 2 * Math.max(0, numOfEdges) * MemoryAccountable.HASH_MAP_NODE;
+    }
+
     @Override
     public String getName() {
         return "DTree Connectivity";
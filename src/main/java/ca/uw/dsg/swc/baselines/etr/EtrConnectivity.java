@@ -29,6 +29,11 @@ public class EtrConnectivity implements FullyDynamicConnectivity {
     }
 
 
+    @Override
+    public long estimatedMemoryConsumption() {
+        return spanningForest.estimatedMemoryConsumption() + nonTreeEdges.estimatedMemoryConsumption();
+    }
+
     @Override
     public void insertEdge(int source, int target) {
         if (!nonTreeEdges.containsEdge(source, target) && !spanningForest.containsEdge(source, target)) { // (source, target) is not included in neither of nonTreeEdges and spanningForest
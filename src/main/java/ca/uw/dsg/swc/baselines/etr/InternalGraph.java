@@ -1,25 +1,27 @@
 package ca.uw.dsg.swc.baselines.etr;
 
+import ca.uw.dsg.swc.MemoryAccountable;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntSet;
 
 import java.util.HashSet;
 import java.util.Set;
 
-public class InternalGraph {
+public class InternalGraph implements MemoryAccountable {
     private final Int2ObjectOpenHashMap<InternalVertex> v2InternalVertex;
+    long numOfAdjacencyEntries, numOfEulerTourEdges; // maintained by the vertices of the graph
 
     public InternalGraph() {
         v2InternalVertex = new Int2ObjectOpenHashMap<>();
     }
 
     public InternalVertex addVertex(int v) {
-        return v2InternalVertex.computeIfAbsent(v, k -> new InternalVertex(v));
+        return v2InternalVertex.computeIfAbsent(v, k -> new InternalVertex(v, this));
     }
 
     public void addEdge(int source, int target) {
-        InternalVertex internalSource = v2InternalVertex.computeIfAbsent(source, k -> new InternalVertex(source));
-        InternalVertex internalTarget = v2InternalVertex.computeIfAbsent(target, k -> new InternalVertex(target));
+        InternalVertex internalSource = v2InternalVertex.computeIfAbsent(source, k -> new InternalVertex(source, this));
+        InternalVertex internalTarget = v2InternalVertex.computeIfAbsent(target, k -> new InternalVertex(target, this));
         internalSource.addEdge(internalTarget);
         internalTarget.addEdge(internalSource);
     }
@@ -77,7 +79,17 @@ public class InternalGraph {
     }
 
     public void removeVertex(int v) {
-        v2InternalVertex.remove(v);
+        InternalVertex internalVertex = v2InternalVertex.remove(v);
+        if (internalVertex != null)
+            internalVertex.uncount();
+    }
+
+    @Override
+    public long estimatedMemoryConsumption() {
+        return OPEN_HASH_MAP + MemoryAccountable.openHashMapSlots(v2InternalVertex.size(), Integer.BYTES + REFERENCE)
+                + (long) v2InternalVertex.size() * InternalVertex.INTERNAL_VERTEX
+                + numOfAdjacencyEntries * HASH_MAP_NODE
+                + numOfEulerTourEdges * InternalVertex.EULER_TOUR_EDGE;
     }
 
     @Override
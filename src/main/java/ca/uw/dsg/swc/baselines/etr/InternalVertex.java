@@ -1,14 +1,25 @@
 package ca.uw.dsg.swc.baselines.etr;
 
+import ca.uw.dsg.swc.MemoryAccountable;
+
 import java.util.HashMap;
 import java.util.Map;
 
 public class InternalVertex {
     private final int v;
     private final Map<InternalVertex, EulerTourEdge> adjacencyList;
+    private final InternalGraph graph; // the graph whose entry counts are updated by this vertex, null if not counted
+
+    static final int INTERNAL_VERTEX = 24 + MemoryAccountable.HASH_MAP + MemoryAccountable.HASH_MAP_TABLE; // the vertex and its adjacency list, whose table is rarely grown
+    static final int EULER_TOUR_EDGE = 24 + 40; // the edge and its treap node
 
     public InternalVertex(int v) {
+        this(v, null);
+    }
+
+    InternalVertex(int v, InternalGraph graph) {
         this.v = v;
+        this.graph = graph;
         adjacencyList = new HashMap<>();
     }
 
@@ -21,17 +32,39 @@ public class InternalVertex {
     }
 
     public void addEdge(InternalVertex target) {
-        adjacencyList.put(target, null);
+        int size = adjacencyList.size();
+        EulerTourEdge old = adjacencyList.put(target, null);
+        count(adjacencyList.size() - size, old == null ? 0 : -1);
     }
 
     public EulerTourEdge addEulerTourEdge(InternalVertex target) { // only use by the case in euler tour
         EulerTourEdge eulerTourEdge = new EulerTourEdge(this, target);
-        adjacencyList.put(target, eulerTourEdge);
+        int size = adjacencyList.size();
+        EulerTourEdge old = adjacencyList.put(target, eulerTourEdge);
+        count(adjacencyList.size() - size, old == null ? 1 : 0);
         return eulerTourEdge;
     }
 
     public void removeEdge(InternalVertex target) {
-        adjacencyList.remove(target);
+        int size = adjacencyList.size();
+        EulerTourEdge old = adjacencyList.remove(target);
+        count(adjacencyList.size() - size, old == null ? 0 : -1);
+    }
+
+    private void count(int deltaOfEntries, int deltaOfEulerTourEdges) {
+        if (graph != null) {
+            graph.numOfAdjacencyEntries += deltaOfEntries;
+            graph.numOfEulerTourEdges += deltaOfEulerTourEdges;
+        }
+    }
+
+    // the vertex is removed from its graph with its adjacency list
+    void uncount() {
+        int numOfEulerTourEdges = 0;
+        for (EulerTourEdge eulerTourEdge : adjacencyList.values())
+            if (eulerTourEdge != null)
+                numOfEulerTourEdges++;
+        count(-adjacencyList.size(), -numOfEulerTourEdges);
     }
 
     public EulerTourEdge getEulerTourEdge(InternalVertex target) {
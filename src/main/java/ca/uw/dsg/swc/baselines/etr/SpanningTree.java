@@ -1,6 +1,6 @@
 package ca.uw.dsg.swc.baselines.etr;
 
-
+import ca.uw.dsg.swc.MemoryAccountable;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import org.jgrapht.Graph;
@@ -59,7 +59,7 @@ public class SpanningTree {
      * This implementation is based on the weighted quick union find with path compression.
      * Please see <a href="https://algs4.cs.princeton.edu/15uf">Section 1.5</a> of Algorithms, 4th Edition by Robert Sedgewick and Kevin Wayne for additional details.
      */
-    public static class IncrementalConnectivity {
+    public static class IncrementalConnectivity implements MemoryAccountable {
         private final Int2IntOpenHashMap parent; // map a vertex to its parent, and if a vertex is a root, then the vertex is mapped to itself
         private final Int2IntOpenHashMap size; // if a vertex is a root, then the vertex is mapped to size of the tree
         private int count; // number of connected components
@@ -163,6 +163,11 @@ public class SpanningTree {
             return root;
         }
 
+        @Override
+        public long estimatedMemoryConsumption() {
+            return 2 * (OPEN_HASH_MAP + MemoryAccountable.openHashMapSlots(parent.size(), 2 * Integer.BYTES));
+        }
+
         /**
          * Returns the number of components
          *
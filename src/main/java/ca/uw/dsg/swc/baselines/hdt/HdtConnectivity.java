@@ -1,6 +1,7 @@
 package ca.uw.dsg.swc.baselines.hdt;
 
 
+import ca.uw.dsg.swc.MemoryAccountable;
 import ca.uw.dsg.swc.baselines.FullyDynamicConnectivity;
 import ca.uw.dsg.swc.baselines.etr.*;
 import it.unimi.dsi.fastutil.ints.IntIntImmutablePair;
@@ -20,7 +21,8 @@ public class HdtConnectivity implements FullyDynamicConnectivity {
     public HdtConnectivity(int numOfVertices) {
         this.levels = new ArrayList<>();
         this.edge2Level = new HashMap<>();
-        int numLevel = (int) Math.floor(Math.log(numOfVertices));
+        // the level of an edge is at most floor(log2(numOfVertices)), and splitting a tree of level l touches the forest of level l + 1
+        int numLevel = Integer.SIZE + 1 - Integer.numberOfLeadingZeros(numOfVertices);
         for (int i = 1; i <= numLevel; i++)
             levels.add(new Level(new InternalGraph(), new InternalGraph()));
     }
@@ -135,6 +137,15 @@ public class HdtConnectivity implements FullyDynamicConnectivity {
         }
     }
 
+    // the forests and non-tree edges of all levels, and the levels of edges, where a key of edge2Level is a pair of two ints
+    @Override
+    public long estimatedMemoryConsumption() {
+        long ret = MemoryAccountable.hashMapEntries(edge2Level.size()) + (long) edge2Level.size() * (OBJECT_HEADER + 2 * Integer.BYTES);
+        for (Level level : levels)
+            ret += level.spanningForest.estimatedMemoryConsumption() + level.nonTreeEdges.estimatedMemoryConsumption();
+        return ret;
+    }
+
     /**
      * @return HDT
      */
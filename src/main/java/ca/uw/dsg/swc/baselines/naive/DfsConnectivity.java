@@ -63,6 +63,11 @@ public class DfsConnectivity implements FullyDynamicConnectivity {
             internalGraph.removeVertex(target);
     }
 
+    @Override
+    public long estimatedMemoryConsumption() {
+        return internalGraph.estimatedMemoryConsumption();
+    }
+
     @Override
     public String getName() {
         return "Naive Connectivity: DFS";
@@ -30,6 +30,11 @@ public class RecalculatingWindowConnectivity extends AbstractSlidingWindowConnec
         window.add(streamingEdge);
     }
 
+    @Override
+    public void delete(StreamingEdge streamingEdge) {
+        window.removeIf(e -> e.source == streamingEdge.source && e.target == streamingEdge.target || e.source == streamingEdge.target && e.target == streamingEdge.source);
+    }
+
     @Override
     public void evict(long lessThan) {
         while (!window.isEmpty() && window.peek().timeStamp < lessThan)
@@ -43,11 +48,14 @@ public class RecalculatingWindowConnectivity extends AbstractSlidingWindowConnec
     }
 
     @Override
-    public void query(List<IntIntPair> queries, List<List<Boolean>> outputStreams) {
+    public void query(List<IntIntPair> queries, long[] answers) {
         buildUfts();
         for (int i = 0, num = queries.size(); i < num; i++) {
             IntIntPair intIntPair = queries.get(i);
-            outputStreams.get(i).add(this.ufts.connected(intIntPair.firstInt(), intIntPair.secondInt()));
+            if (intIntPair == null) // skip unregistered queries
+                continue;
+            if (this.ufts.connected(intIntPair.firstInt(), intIntPair.secondInt()))
+                answers[i >>> 6] |= 1L << i;
         }
     }
 
@@ -58,6 +66,12 @@ public class RecalculatingWindowConnectivity extends AbstractSlidingWindowConnec
         this.ufts = incrementalConnectivity;
     }
 
+    // the same scope as memoryConsumption(), i.e., the index without the edges of the window
+    @Override
+    public long estimatedMemoryConsumption() {
+        return ufts == null ? 0 : ufts.estimatedMemoryConsumption();
+    }
+
     @Override
     public long memoryConsumption() {
         return GraphLayout.parseInstance(ufts).totalSize();
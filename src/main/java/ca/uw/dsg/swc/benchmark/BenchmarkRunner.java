@@ -948,6 +948,27 @@ public class BenchmarkRunner {
             case "BIC":
                 ret = new BidirectionalIncrementalConnectivity(range, slide, first, workload); // BIC uses first timestamp to initialize chunk
                 break;
+            case "BIC-Async":
+                ret = new BidirectionalIncrementalConnectivity(range, slide, first, workload, BidirectionalIncrementalConnectivity.BackwardComputation.ASYNCHRONOUS);
+                break;
+            case "BIC-Batch":
+                BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(range, slide, first, workload);
+                bic.setBatchQueryEvaluation(true);
+                ret = bic;
+                break;
+            case "BIC-Incremental":
+                ret = new BidirectionalIncrementalConnectivity(range, slide, first, workload, BidirectionalIncrementalConnectivity.BackwardComputation.INCREMENTAL);
+                break;
+            case "BIC-Dense":
+                BidirectionalIncrementalConnectivity denseBic = new BidirectionalIncrementalConnectivity(range, slide, first, workload);
+                denseBic.setDenseVertexIds(true);
+                ret = denseBic;
+                break;
+            case "BIC-OffHeap":
+                BidirectionalIncrementalConnectivity offHeapBic = new BidirectionalIncrementalConnectivity(range, slide, first, workload);
+                offHeapBic.setOffHeapBackwardBuffers(true);
+                ret = offHeapBic;
+                break;
             default:
                 ret = null;
         }
@@ -1,44 +1,94 @@
 package ca.uw.dsg.swc.bic;
 
-import ca.uw.dsg.swc.StreamingEdge;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import ca.uw.dsg.swc.MemoryAccountable;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntIntPair;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity.EMPTY_ROOT;
 
-public class BackwardBuffer {
-    final Int2ObjectOpenHashMap<AugmentedTreeNode> vertex2AugTreeNode; // map vertex to its node in union-find tree
+public class BackwardBuffer implements MemoryAccountable {
+    static final int DEFAULT_VALUE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    final Int2IntOpenHashMap vertex2Id; // map vertex to its local id in union-find tree, DEFAULT_VALUE if absent
     final BridgingViewStore bridgingViewStore;
 
     final AtomicBoolean isDone;
-    private final Chunk chunk;
+    private Chunk chunk; // released once the backward buffer is computed, or by free() if it is retained
+    private boolean retainChunk; // the chunk is kept to rebuild the backward buffer after edge deletions
+
+    // the labelled union-find is stored column by column, where a vertex is identified by its local id in the chunk
+    // such that the label-bounded walks to a root only read int columns, which are stored on the heap or off-heap
+    private int numOfVertices;
+    private final IntColumnStore columns;
+    private static final int VERTEX = 0; // the vertex of a local id
+    private static final int PARENT = 1; // DEFAULT_VALUE for a root
+    private static final int SIZE_OF_SUB_TREE = 2; // tree size
+    private static final int LABEL_OF_EDGE_TO_PARENT = 3; // the label of the edge to its parent
+    private static final int VERTEX_LABEL = 4; // vertex label
+    private static final int START_INTERVAL = 5, END_INTERVAL = 6; // vertex interval, DEFAULT_VALUE if the vertex has no interval
+    private static final int NUM_OF_COLUMNS = 7;
+    // the children of a vertex are linked in the order of their labels, from the smallest, such that the size of a tree at a snapshot index is known
+    private static final int LAST_CHILD = 7; // the child attached last, i.e., with the smallest label, DEFAULT_VALUE if none
+    private static final int PREVIOUS_SIBLING = 8; // the child of the same parent attached before this one
+    private static final int NUM_OF_COLUMNS_WITH_AGGREGATES = 9;
+
+    private final int chunkSize;
+    private final boolean componentAggregates;
+    private int[] numOfComponents; // the number of trees at each snapshot index, set once the backward buffer is computed with component aggregates
 
     private int[] sources, targets;
-    private AugmentedTreeNode[] sourceNodes, targetNodes;
+    private int[] sourceIds, targetIds; // local ids of the workload pairs, DEFAULT_VALUE if absent
+    // connectivity within the backward buffer is monotone in the snapshot index, i.e., index i sees the edges of chunk[i, ...]
+    // for each workload pair, the largest index at which source and target are connected in the backward buffer, 0 if never
+    private int[] connectedUntil;
+
+    // position of the backward computation, which can be performed piecewise
+    private int nextElement; // the element of the chunk that is being processed, from the last to the first
+    private int numOfProcessedInElement; // the number of edges of nextElement that have been processed, from the last to the first
 
     public BackwardBuffer(Chunk chunk) {
+        this(chunk, (IntColumnStore.OffHeapPool) null, false);
+    }
+
+    // the union-find columns are taken from offHeapPool unless it is null, and must be returned by free()
+    BackwardBuffer(Chunk chunk, IntColumnStore.OffHeapPool offHeapPool, boolean componentAggregates) {
         this.chunk = chunk;
-        this.vertex2AugTreeNode = new Int2ObjectOpenHashMap<>();
-        this.bridgingViewStore = new BridgingViewStore(chunk.getChunkSize());
+        this.chunkSize = chunk.getChunkSize();
+        this.componentAggregates = componentAggregates;
+        this.nextElement = chunkSize - 1;
+        this.vertex2Id = new Int2IntOpenHashMap();
+        this.vertex2Id.defaultReturnValue(DEFAULT_VALUE);
+        this.bridgingViewStore = new BridgingViewStore(chunkSize);
+        if (componentAggregates)
+            bridgingViewStore.setMergeCounting();
         this.isDone = new AtomicBoolean(false);
+        this.columns = IntColumnStore.create(componentAggregates ? NUM_OF_COLUMNS_WITH_AGGREGATES : NUM_OF_COLUMNS, Math.max(INITIAL_CAPACITY, chunk.getNumOfEdges()), offHeapPool);
     }
 
     public BackwardBuffer(Chunk chunk, List<IntIntPair> workload) {
-        this.chunk = chunk;
-        this.vertex2AugTreeNode = new Int2ObjectOpenHashMap<>();
-        this.bridgingViewStore = new BridgingViewStore(chunk.getChunkSize());
-        this.isDone = new AtomicBoolean(false);
+        this(chunk, workload, null, false);
+    }
+
+    BackwardBuffer(Chunk chunk, List<IntIntPair> workload, IntColumnStore.OffHeapPool offHeapPool, boolean componentAggregates) {
+        this(chunk, offHeapPool, componentAggregates);
         int len = workload.size();
         sources = new int[len];
         targets = new int[len];
-        sourceNodes = new AugmentedTreeNode[len];
-        targetNodes = new AugmentedTreeNode[len];
+        sourceIds = new int[len];
+        targetIds = new int[len];
+        connectedUntil = new int[len];
         int i = 0;
         for (IntIntPair st : workload) {
+            if (st == null) { // an unregistered slot
+                sources[i] = EMPTY_ROOT;
+                targets[i++] = EMPTY_ROOT;
+                continue;
+            }
             sources[i] = st.firstInt();
             targets[i++] = st.secondInt();
         }
@@ -46,50 +96,44 @@ public class BackwardBuffer {
 
     @Deprecated
     public boolean intraConnected(int source, int target, int index, RootPair rootsInB) {
-        AugmentedTreeNode rootSource = null, rootTarget = null;
-
-        AugmentedTreeNode sourceAugmentedTreeNode = vertex2AugTreeNode.get(source);
-
         rootsInB.numOfEmpty = 0;
 
-        if (sourceAugmentedTreeNode != null && index <= sourceAugmentedTreeNode.vertexLabel) {
-            rootSource = find(sourceAugmentedTreeNode, index);
-            rootsInB.sourceRoot = rootSource.v;
-        } else {
+        int sourceId = vertex2Id.get(source);
+        if (sourceId != DEFAULT_VALUE && index <= columns.get(VERTEX_LABEL, sourceId))
+            rootsInB.sourceRoot = columns.get(VERTEX, find(sourceId, index));
+        else {
             rootsInB.sourceRoot = EMPTY_ROOT;
             rootsInB.numOfEmpty++;
         }
 
-        AugmentedTreeNode targetAugmentedTreeNode = vertex2AugTreeNode.get(target);
-
-        if (targetAugmentedTreeNode != null && index <= targetAugmentedTreeNode.vertexLabel) {
-            rootTarget = find(targetAugmentedTreeNode, index);
-            rootsInB.targetRoot = rootTarget.v;
-        } else {
+        int targetId = vertex2Id.get(target);
+        if (targetId != DEFAULT_VALUE && index <= columns.get(VERTEX_LABEL, targetId))
+            rootsInB.targetRoot = columns.get(VERTEX, find(targetId, index));
+        else {
             rootsInB.targetRoot = EMPTY_ROOT;
             rootsInB.numOfEmpty++;
         }
 
-        if (rootSource == null || rootTarget == null)
+        if (rootsInB.sourceRoot == EMPTY_ROOT || rootsInB.targetRoot == EMPTY_ROOT)
             return false;
-        return rootSource == rootTarget;
+        return rootsInB.sourceRoot == rootsInB.targetRoot;
     }
 
     @Deprecated
     public boolean intraConnected(int workloadIndex, int index, RootPair rootsInB) {
         rootsInB.numOfEmpty = 0;
 
-        AugmentedTreeNode sourceAugmentedTreeNode = sourceNodes[workloadIndex];
-        if (sourceAugmentedTreeNode != null && index <= sourceAugmentedTreeNode.vertexLabel) {
-            rootsInB.sourceRoot = find(sourceAugmentedTreeNode, index).v;
+        int sourceId = sourceIds[workloadIndex];
+        if (sourceId != DEFAULT_VALUE && index <= columns.get(VERTEX_LABEL, sourceId)) {
+            rootsInB.sourceRoot = columns.get(VERTEX, find(sourceId, index));
         } else {
             rootsInB.sourceRoot = EMPTY_ROOT;
             rootsInB.numOfEmpty++;
         }
 
-        AugmentedTreeNode targetAugmentedTreeNode = targetNodes[workloadIndex];
-        if (targetAugmentedTreeNode != null && index <= targetAugmentedTreeNode.vertexLabel) {
-            rootsInB.targetRoot = find(targetAugmentedTreeNode, index).v;
+        int targetId = targetIds[workloadIndex];
+        if (targetId != DEFAULT_VALUE && index <= columns.get(VERTEX_LABEL, targetId)) {
+            rootsInB.targetRoot = columns.get(VERTEX, find(targetId, index));
         } else {
             rootsInB.targetRoot = EMPTY_ROOT;
             rootsInB.numOfEmpty++;
@@ -101,84 +145,118 @@ public class BackwardBuffer {
     }
 
 
+    // set up a workload pair that is registered at runtime, the backward buffer must have been computed
+    void registerQuery(int slot, int source, int target) {
+        if (sources == null || slot >= sources.length) {
+            int len = sources == null ? 0 : sources.length, newLen = Math.max(slot + 1, len << 1);
+            sources = sources == null ? new int[newLen] : Arrays.copyOf(sources, newLen);
+            targets = targets == null ? new int[newLen] : Arrays.copyOf(targets, newLen);
+            sourceIds = sourceIds == null ? new int[newLen] : Arrays.copyOf(sourceIds, newLen);
+            targetIds = targetIds == null ? new int[newLen] : Arrays.copyOf(targetIds, newLen);
+            connectedUntil = connectedUntil == null ? new int[newLen] : Arrays.copyOf(connectedUntil, newLen);
+        }
+        sources[slot] = source;
+        targets[slot] = target;
+        sourceIds[slot] = vertex2Id.get(source);
+        targetIds[slot] = vertex2Id.get(target);
+        connectedUntil[slot] = computeConnectedUntil(sourceIds[slot], targetIds[slot]);
+    }
+
+    // compute the roots of source and target at the snapshot index for an ad-hoc query, EMPTY_ROOT if a vertex does not exist at the index
+    void findRoots(int source, int target, int index, RootPair rootsInB) {
+        int sourceId = vertex2Id.get(source);
+        rootsInB.sourceRoot = sourceId != DEFAULT_VALUE && index <= columns.get(VERTEX_LABEL, sourceId) ? columns.get(VERTEX, find(sourceId, index)) : EMPTY_ROOT;
+        int targetId = vertex2Id.get(target);
+        rootsInB.targetRoot = targetId != DEFAULT_VALUE && index <= columns.get(VERTEX_LABEL, targetId) ? columns.get(VERTEX, find(targetId, index)) : EMPTY_ROOT;
+    }
+
     void findSourceRootForIntraConnected(int workloadIndex, int index, RootPair rootsInB) {
-        AugmentedTreeNode sourceAugmentedTreeNode = sourceNodes[workloadIndex];
-        if (sourceAugmentedTreeNode != null && index <= sourceAugmentedTreeNode.vertexLabel)
-            rootsInB.sourceRoot = find(sourceAugmentedTreeNode, index).v;
+        int sourceId = sourceIds[workloadIndex];
+        if (sourceId != DEFAULT_VALUE && index <= columns.get(VERTEX_LABEL, sourceId))
+            rootsInB.sourceRoot = columns.get(VERTEX, find(sourceId, index));
     }
 
 
     void findTargetRootForIntraConnected(int workloadIndex, int index, RootPair rootsInB) {
-        AugmentedTreeNode targetAugmentedTreeNode = targetNodes[workloadIndex];
-        if (targetAugmentedTreeNode != null && index <= targetAugmentedTreeNode.vertexLabel)
-            rootsInB.targetRoot = find(targetAugmentedTreeNode, index).v;
+        int targetId = targetIds[workloadIndex];
+        if (targetId != DEFAULT_VALUE && index <= columns.get(VERTEX_LABEL, targetId))
+            rootsInB.targetRoot = columns.get(VERTEX, find(targetId, index));
     }
 
-    private void insertEdge(int source, int target, int index) {
-        AugmentedTreeNode sourceAugmentedTreeNode = vertex2AugTreeNode.computeIfAbsent(source, k -> new AugmentedTreeNode(source, index));
-        AugmentedTreeNode targetAugmentedTreeNode = vertex2AugTreeNode.computeIfAbsent(target, k -> new AugmentedTreeNode(target, index));
+    private int getOrAddVertex(int v, int index) {
+        int id = vertex2Id.get(v);
+        if (id != DEFAULT_VALUE)
+            return id;
+        id = numOfVertices++;
+        if (id == columns.capacity())
+            columns.grow();
+        columns.set(VERTEX, id, v);
+        columns.set(PARENT, id, DEFAULT_VALUE);
+        columns.set(SIZE_OF_SUB_TREE, id, 1);
+        columns.set(LABEL_OF_EDGE_TO_PARENT, id, DEFAULT_VALUE);
+        columns.set(VERTEX_LABEL, id, index);
+        // a new vertex is a root from the first snapshot index to its vertex label, which is not the label of its first union if it is inserted by a self-loop
+        columns.set(START_INTERVAL, id, 1);
+        columns.set(END_INTERVAL, id, index);
+        if (componentAggregates)
+            columns.set(LAST_CHILD, id, DEFAULT_VALUE);
+        vertex2Id.put(v, id);
+        return id;
+    }
 
-        AugmentedTreeNode rootOfSource = find(sourceAugmentedTreeNode);
-        AugmentedTreeNode rootOfTarget = find(targetAugmentedTreeNode);
+    private void insertEdge(int source, int target, int index) {
+        int rootOfSource = find(getOrAddVertex(source, index));
+        int rootOfTarget = find(getOrAddVertex(target, index));
 
         if (rootOfSource != rootOfTarget)
             // let the smaller one be the child of the larger one
-            if (rootOfSource.sizeOfSubTree < rootOfTarget.sizeOfSubTree) // source as child of target, i.e., target is the root
+            if (columns.get(SIZE_OF_SUB_TREE, rootOfSource) < columns.get(SIZE_OF_SUB_TREE, rootOfTarget)) // source as child of target, i.e., target is the root
                 union(rootOfSource, rootOfTarget, index);
             else  // target as child of source
                 union(rootOfTarget, rootOfSource, index);
     }
 
-    private void union(AugmentedTreeNode child, AugmentedTreeNode parent, int index) {
-        child.parent = parent; // set target as the parent of source
-        parent.sizeOfSubTree += child.sizeOfSubTree; // update the size of the subtree rooted at target
+    private void union(int child, int parent, int index) {
+        columns.set(PARENT, child, parent); // set target as the parent of source
+        columns.set(SIZE_OF_SUB_TREE, parent, columns.get(SIZE_OF_SUB_TREE, parent) + columns.get(SIZE_OF_SUB_TREE, child)); // update the size of the subtree rooted at target
 
-        child.labelOfEdgeToParent = index; // label the edge from source to target with index
-
-        if (!parent.hasInterval) {
-            // if the root has not labeled with an interval, then label the root with an interval to indicate that when it is a root
-            // notice that, the interval can be changed later if the vertex becomes a child of another vertex
-            parent.hasInterval = true;
-            parent.startInterval = 1; // assuming it is a root from the first snapshot index, i.e., 1;
-            parent.endInterval = index;
+        columns.set(LABEL_OF_EDGE_TO_PARENT, child, index); // label the edge from source to target with index
+        if (componentAggregates) { // the labels of the unions are non-increasing, such that the list of children stays ordered by label
+            columns.set(PREVIOUS_SIBLING, child, columns.get(LAST_CHILD, parent));
+            columns.set(LAST_CHILD, parent, child);
         }
 
-        // update the interval of the child
-        // this only applies to the case that the child was labeled with an interval, and now the interval needs to be changed
-        if (child.hasInterval) {
-            if (child.endInterval == index) { // the child at chunk[index] is not eventually a root, such that remove the interval of the child
-                child.hasInterval = false;
-                child.startInterval = AugmentedTreeNode.DEFAULT_VALUE;
-                child.endInterval = AugmentedTreeNode.DEFAULT_VALUE;
-            } else {
-                // endInterval cannot be smaller than the current index, because union is performed during backward computation
-                // such that it is the case endInterval > index
-                child.startInterval = index + 1;
-            }
+        // update the interval of the child, which was a root and is labeled with an interval since it was added
+        // the interval of the parent is kept, as it stays a root until it becomes a child of another vertex
+        if (columns.get(END_INTERVAL, child) == index) { // the child at chunk[index] is not eventually a root, such that remove the interval of the child
+            columns.set(START_INTERVAL, child, DEFAULT_VALUE);
+            columns.set(END_INTERVAL, child, DEFAULT_VALUE);
+        } else {
+            // endInterval cannot be smaller than the current index, because union is performed during backward computation
+            // such that it is the case endInterval > index
+            columns.set(START_INTERVAL, child, index + 1);
         }
     }
 
-    private AugmentedTreeNode find(AugmentedTreeNode AugmentedTreeNode) {
-        AugmentedTreeNode temp = AugmentedTreeNode;
-        while (temp.parent != null)
-            temp = temp.parent;
-        return temp;
+    private int find(int id) {
+        while (columns.get(PARENT, id) != DEFAULT_VALUE)
+            id = columns.get(PARENT, id);
+        return id;
     }
 
-    private AugmentedTreeNode find(AugmentedTreeNode AugmentedTreeNode, int index) {
-        AugmentedTreeNode temp = AugmentedTreeNode;
-        while (temp.parent != null && temp.labelOfEdgeToParent >= index) // only edges labeled with a larger index are visited, i.e., the snapshot isolation approach
-            temp = temp.parent;
-        return temp;
+    private int find(int id, int index) {
+        while (columns.get(PARENT, id) != DEFAULT_VALUE && columns.get(LABEL_OF_EDGE_TO_PARENT, id) >= index) // only edges labeled with a larger index are visited, i.e., the snapshot isolation approach
+            id = columns.get(PARENT, id);
+        return id;
     }
 
 
     void insertBGEdgeWithInterVertex(int interV, int rootOfInterVInF, int indexInB) {
-        AugmentedTreeNode augmentedTreeNode = vertex2AugTreeNode.get(interV);
+        int id = vertex2Id.get(interV);
         // vertexLabel l indicates that v is inserted at b[l], such that v can exist from b[1] to b[l]
         // if the snapshot index is smaller than l, then v exists in the backward buffer
-        if (augmentedTreeNode != null && indexInB <= augmentedTreeNode.vertexLabel)
-            insertBGEdge(interV, rootOfInterVInF, indexInB); //
+        if (id != DEFAULT_VALUE && indexInB <= columns.get(VERTEX_LABEL, id))
+            insertBGEdge(id, rootOfInterVInF, indexInB); //
     }
 
     void updateNewRootInF(int oldV, int newV) {
@@ -188,32 +266,32 @@ public class BackwardBuffer {
 
     // intervals are stored as a list of [start, end]
     // each root is associated with an interval
-    // interV must be an inter-vertex
-    private void insertBGEdge(int interV, int rootOfInterVInF, int indexInB) {
-        AugmentedTreeNode temp = vertex2AugTreeNode.get(interV);
-        final int vertexLabel = temp.vertexLabel; // vertexLabel indicates the largest snapshot index of the backward buffer that contains the vertex
+    // the vertex of id must be an inter-vertex
+    private void insertBGEdge(int id, int rootOfInterVInF, int indexInB) {
+        int temp = id;
+        final int vertexLabel = columns.get(VERTEX_LABEL, temp); // vertexLabel indicates the largest snapshot index of the backward buffer that contains the vertex
 
-        if (temp.parent == null) { // temp is the root, then temp must has an interval
-            bridgingViewStore.edgeInsertion(rootOfInterVInF, temp.v, indexInB, vertexLabel);
+        if (columns.get(PARENT, temp) == DEFAULT_VALUE) { // temp is the root, then temp must has an interval
+            bridgingViewStore.edgeInsertion(rootOfInterVInF, columns.get(VERTEX, temp), indexInB, vertexLabel);
             return;
         }
 
         int nextEnd = vertexLabel;
-        if (temp.hasInterval && temp.startInterval <= vertexLabel) { // process temp
-            bridgingViewStore.edgeInsertion(rootOfInterVInF, temp.v, temp.startInterval, nextEnd);
-            nextEnd = temp.startInterval - 1;
+        if (columns.get(START_INTERVAL, temp) != DEFAULT_VALUE && columns.get(START_INTERVAL, temp) <= vertexLabel) { // process temp
+            bridgingViewStore.edgeInsertion(rootOfInterVInF, columns.get(VERTEX, temp), columns.get(START_INTERVAL, temp), nextEnd);
+            nextEnd = columns.get(START_INTERVAL, temp) - 1;
         }
 
-        while (temp.parent != null && indexInB <= temp.labelOfEdgeToParent) {// process temp's predecessors
-            temp = temp.parent;
-            if (temp.hasInterval && temp.startInterval <= vertexLabel) {
+        while (columns.get(PARENT, temp) != DEFAULT_VALUE && indexInB <= columns.get(LABEL_OF_EDGE_TO_PARENT, temp)) {// process temp's predecessors
+            temp = columns.get(PARENT, temp);
+            if (columns.get(START_INTERVAL, temp) != DEFAULT_VALUE && columns.get(START_INTERVAL, temp) <= vertexLabel) {
                 // vertex temp is now the first vertex labeled with interval [start, end] such that start <= vertexLabel
-                if (temp.parent == null) { // if temp is currently the root in the tree
-                    bridgingViewStore.edgeInsertion(rootOfInterVInF, temp.v, indexInB, nextEnd);
+                if (columns.get(PARENT, temp) == DEFAULT_VALUE) { // if temp is currently the root in the tree
+                    bridgingViewStore.edgeInsertion(rootOfInterVInF, columns.get(VERTEX, temp), indexInB, nextEnd);
                     return;
                 } else { // temp is not the root
-                    bridgingViewStore.edgeInsertion(rootOfInterVInF, temp.v, temp.startInterval, nextEnd);
-                    nextEnd = temp.startInterval - 1;
+                    bridgingViewStore.edgeInsertion(rootOfInterVInF, columns.get(VERTEX, temp), columns.get(START_INTERVAL, temp), nextEnd);
+                    nextEnd = columns.get(START_INTERVAL, temp) - 1;
                 }
             }
         }
@@ -221,45 +299,235 @@ public class BackwardBuffer {
 
 
     public void compute() { // backward computation
-        ArrayList<ArrayList<StreamingEdge>> edgesInChunk = chunk.getData();
-        int chunkSize = edgesInChunk.size();
-        for (int i = chunkSize - 1; i > 0; i--) { // from the last to the first, chunk[0] is not needed
-            List<StreamingEdge> element = edgesInChunk.get(i);
-            for (int j = element.size() - 1; j > -1; j--) { // from the last to the first
-                StreamingEdge se = element.get(j); // retrieve streaming edges in the chunk
-                insertEdge(se.source, se.target, i); // insert with index in B
+        computeStep(Integer.MAX_VALUE);
+    }
+
+    // continue the backward computation with at most budget edges, returns true if the computation is complete
+    boolean computeStep(int budget) {
+        if (isDone.get())
+            return true;
+        for (; nextElement > 0; nextElement--) { // from the last to the first, chunk[0] is not needed
+            int start = chunk.getStartOfElement(nextElement);
+            for (int j = chunk.getEndOfElement(nextElement) - 1 - numOfProcessedInElement; j >= start; j--) { // from the last to the first
+                if (budget-- == 0)
+                    return false;
+                if (!chunk.isRemoved(j))
+                    insertEdge(chunk.getSource(j), chunk.getTarget(j), nextElement); // insert with index in B
+                numOfProcessedInElement++;
             }
+            numOfProcessedInElement = 0;
+        }
+        complete();
+        return true;
+    }
+
+    private void complete() {
+        if (!retainChunk) {
+            chunk.release();
+            chunk = null;
         }
         setupWorkloadNodes();
+        if (componentAggregates)
+            countComponents();
+        isDone.set(true); // publish the computed buffer to the ingest thread
+    }
+
+    // after edges of the retained chunk are removed, the unions labelled with the element or a smaller index are undone, and the elements from it
+    // to the first are processed again, instead of the whole chunk; the unions of the later elements are kept, as they are made before the element is processed
+    // the vertices added from the element on have the largest local ids, since the ids follow the backward computation, and the sizes are exact subtree sizes,
+    // such that an undone union subtracts the size of the child from its ancestors, in time linear in the vertices times the height of the trees
+    void recomputeFrom(int element) {
+        int numOfKeptVertices = numOfVertices;
+        while (numOfKeptVertices > 0 && columns.get(VERTEX_LABEL, numOfKeptVertices - 1) <= element)
+            numOfKeptVertices--;
+        if (componentAggregates) // the children attached from the element on are the last ones of the lists
+            for (int id = 0; id < numOfKeptVertices; id++) {
+                int child = columns.get(LAST_CHILD, id);
+                while (child != DEFAULT_VALUE && columns.get(LABEL_OF_EDGE_TO_PARENT, child) <= element)
+                    child = columns.get(PREVIOUS_SIBLING, child);
+                columns.set(LAST_CHILD, id, child);
+            }
+        for (int id = 0; id < numOfVertices; id++) {
+            if (columns.get(PARENT, id) == DEFAULT_VALUE || columns.get(LABEL_OF_EDGE_TO_PARENT, id) > element)
+                continue;
+            int size = columns.get(SIZE_OF_SUB_TREE, id);
+            for (int ancestor = columns.get(PARENT, id); ancestor != DEFAULT_VALUE; ancestor = columns.get(PARENT, ancestor))
+                columns.set(SIZE_OF_SUB_TREE, ancestor, columns.get(SIZE_OF_SUB_TREE, ancestor) - size);
+            columns.set(PARENT, id, DEFAULT_VALUE);
+            columns.set(LABEL_OF_EDGE_TO_PARENT, id, DEFAULT_VALUE);
+            columns.set(START_INTERVAL, id, 1); // the interval of a root, see getOrAddVertex
+            columns.set(END_INTERVAL, id, columns.get(VERTEX_LABEL, id));
+        }
+        for (int id = numOfKeptVertices; id < numOfVertices; id++)
+            vertex2Id.remove(columns.get(VERTEX, id));
+        numOfVertices = numOfKeptVertices;
+        nextElement = element;
+        numOfProcessedInElement = 0;
+        isDone.set(false);
+        compute();
+    }
+
+    // the columns of the computed union-find, copied such that they can be written to a checkpoint by another thread
+    int[][] copyColumns() {
+        int[][] ret = new int[componentAggregates ? NUM_OF_COLUMNS_WITH_AGGREGATES : NUM_OF_COLUMNS][numOfVertices];
+        for (int column = 0; column < ret.length; column++)
+            for (int id = 0; id < numOfVertices; id++)
+                ret[column][id] = columns.get(column, id);
+        return ret;
+    }
+
+    // the backward buffer is set to a computed union-find copied by copyColumns, instead of computing it from the chunk
+    // the vertex map and the workload pairs are set up in time linear in the number of vertices
+    void restore(int[][] copiedColumns) {
+        // the empty backward buffer of the first chunk is created before the component aggregates are set
+        if (copiedColumns[0].length > 0 && copiedColumns.length != (componentAggregates ? NUM_OF_COLUMNS_WITH_AGGREGATES : NUM_OF_COLUMNS))
+            throw new IllegalArgumentException("The columns do not match the component aggregates of the backward buffer");
+        numOfVertices = copiedColumns[0].length;
+        while (columns.capacity() < numOfVertices)
+            columns.grow();
+        vertex2Id.ensureCapacity(numOfVertices);
+        for (int column = 0; column < copiedColumns.length; column++)
+            for (int id = 0; id < numOfVertices; id++)
+                columns.set(column, id, copiedColumns[column][id]);
+        for (int id = 0; id < numOfVertices; id++)
+            vertex2Id.put(columns.get(VERTEX, id), id);
+        nextElement = 0;
+        complete();
+    }
+
+    // the trees at snapshot index i are the vertices with a vertex label of at least i, minus the tree edges with a label of at least i
+    private void countComponents() {
+        numOfComponents = new int[chunkSize];
+        for (int id = 0; id < numOfVertices; id++) {
+            numOfComponents[columns.get(VERTEX_LABEL, id)]++;
+            if (columns.get(PARENT, id) != DEFAULT_VALUE)
+                numOfComponents[columns.get(LABEL_OF_EDGE_TO_PARENT, id)]--;
+        }
+        for (int i = chunkSize - 2; i > 0; i--)
+            numOfComponents[i] += numOfComponents[i + 1];
+    }
+
+    // the number of connected components of the backward buffer at the snapshot index
+    int numOfComponents(int index) {
+        return numOfComponents == null ? 0 : numOfComponents[index];
+    }
+
+    // the root of the vertex at the snapshot index, EMPTY_ROOT if the vertex does not exist at the index
+    int findRoot(int v, int index) {
+        int id = vertex2Id.get(v);
+        return id != DEFAULT_VALUE && index <= columns.get(VERTEX_LABEL, id) ? columns.get(VERTEX, find(id, index)) : EMPTY_ROOT;
+    }
+
+    // the largest snapshot index at which the vertex exists, DEFAULT_VALUE if the vertex is not in the backward buffer
+    int vertexLabel(int v) {
+        int id = vertex2Id.get(v);
+        return id == DEFAULT_VALUE ? DEFAULT_VALUE : columns.get(VERTEX_LABEL, id);
+    }
+
+    // the size of the tree of a root at the snapshot index, i.e., its size without the children that are attached by a label smaller than the index
+    int sizeOfRoot(int root, int index) {
+        int id = vertex2Id.get(root);
+        int size = columns.get(SIZE_OF_SUB_TREE, id);
+        for (int child = columns.get(LAST_CHILD, id); child != DEFAULT_VALUE && columns.get(LABEL_OF_EDGE_TO_PARENT, child) < index; child = columns.get(PREVIOUS_SIBLING, child))
+            size -= columns.get(SIZE_OF_SUB_TREE, child);
+        return size;
     }
 
     private void setupWorkloadNodes() {
+        if (sources == null) // no workload is registered
+            return;
         for (int i = 0, len = sources.length; i < len; i++) {
-            sourceNodes[i] = vertex2AugTreeNode.get(sources[i]);
-            targetNodes[i] = vertex2AugTreeNode.get(targets[i]);
+            sourceIds[i] = vertex2Id.get(sources[i]);
+            targetIds[i] = vertex2Id.get(targets[i]);
+            connectedUntil[i] = computeConnectedUntil(sourceIds[i], targetIds[i]);
         }
     }
 
-    static class AugmentedTreeNode {
-        static final int DEFAULT_VALUE = -1;
-        int v;
-        AugmentedTreeNode parent; // parent
-        int sizeOfSubTree; // tree size
-        int labelOfEdgeToParent; // the label of the edge to its parent
-        int vertexLabel; // vertex label
-        int startInterval, endInterval; // vertex interval
-        boolean hasInterval;
-
-        public AugmentedTreeNode(int v, int vertexLabel) {
-            this.v = v;
-            this.sizeOfSubTree = 1;
-            this.parent = null;
-            this.vertexLabel = vertexLabel;
-            this.hasInterval = false;
-
-            this.labelOfEdgeToParent = DEFAULT_VALUE;
-            this.startInterval = DEFAULT_VALUE;
-            this.endInterval = DEFAULT_VALUE;
+    // source and target are connected at index i iff both reach their lowest common ancestor via edges labeled with at least i,
+    // as the labels are non-increasing from a node to the root, i.e., a parent is linked to its own parent with a smaller index
+    private int computeConnectedUntil(int source, int target) {
+        if (source == DEFAULT_VALUE || target == DEFAULT_VALUE)
+            return 0;
+        int until = Math.min(columns.get(VERTEX_LABEL, source), columns.get(VERTEX_LABEL, target)); // a vertex does not exist at a larger index
+        if (source == target)
+            return until;
+
+        int sourceDepth = depth(source), targetDepth = depth(target);
+        while (sourceDepth > targetDepth) {
+            until = Math.min(until, columns.get(LABEL_OF_EDGE_TO_PARENT, source));
+            source = columns.get(PARENT, source);
+            sourceDepth--;
         }
+        while (targetDepth > sourceDepth) {
+            until = Math.min(until, columns.get(LABEL_OF_EDGE_TO_PARENT, target));
+            target = columns.get(PARENT, target);
+            targetDepth--;
+        }
+        while (source != target) {
+            if (columns.get(PARENT, source) == DEFAULT_VALUE) // different trees
+                return 0;
+            until = Math.min(until, Math.min(columns.get(LABEL_OF_EDGE_TO_PARENT, source), columns.get(LABEL_OF_EDGE_TO_PARENT, target)));
+            source = columns.get(PARENT, source);
+            target = columns.get(PARENT, target);
+        }
+        return until;
+    }
+
+    private int depth(int id) {
+        int depth = 0;
+        while (columns.get(PARENT, id) != DEFAULT_VALUE) {
+            id = columns.get(PARENT, id);
+            depth++;
+        }
+        return depth;
+    }
+
+    // the off-heap columns are included, and the chunk is included as long as it is referenced
+    // the estimate can be read by the ingest thread while the buffer is computed by the background thread
+    @Override
+    public long estimatedMemoryConsumption() {
+        Chunk chunk = this.chunk;
+        return OPEN_HASH_MAP + MemoryAccountable.openHashMapSlots(vertex2Id.size(), 2 * Integer.BYTES)
+                + columns.sizeInBytes()
+                + (sources == null ? 0 : (long) sources.length * 5 * Integer.BYTES)
+                + (numOfComponents == null ? 0 : (long) numOfComponents.length * Integer.BYTES)
+                + bridgingViewStore.estimatedMemoryConsumption()
+                + (chunk == null ? 0 : chunk.estimatedMemoryConsumption());
+    }
+
+    // the capacity of the direct buffers of the columns, 0 if they are on the heap
+    long offHeapSizeInBytes() {
+        return isOffHeap() ? columns.sizeInBytes() : 0;
+    }
+
+    boolean isOffHeap() {
+        return columns instanceof IntColumnStore.OffHeapIntColumnStore;
+    }
+
+    void setRetainChunk(boolean retainChunk) {
+        this.retainChunk = retainChunk;
+    }
+
+    boolean isChunkRetained() {
+        return retainChunk;
+    }
+
+    // the chunk of the backward buffer, null if it has been released
+    Chunk getChunk() {
+        return chunk;
+    }
+
+    // return the off-heap columns to their pool and release the retained chunk, the backward buffer must not be used afterwards
+    void free() {
+        columns.free();
+        if (retainChunk && chunk != null) {
+            chunk.release();
+            chunk = null;
+        }
+    }
+
+    // true if source and target of the workload pair are connected within the backward buffer at the snapshot index
+    boolean intraConnectedByThreshold(int workloadIndex, int index) {
+        return index <= connectedUntil[workloadIndex];
     }
 }
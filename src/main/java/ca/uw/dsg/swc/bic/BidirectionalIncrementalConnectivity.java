@@ -1,59 +1,119 @@
 package ca.uw.dsg.swc.bic;
 
 import ca.uw.dsg.swc.AbstractSlidingWindowConnectivity;
+import ca.uw.dsg.swc.MemoryAccountable;
 import ca.uw.dsg.swc.StreamingEdge;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntIntPair;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import org.openjdk.jol.info.GraphLayout;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Duration;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class BidirectionalIncrementalConnectivity extends AbstractSlidingWindowConnectivity {
     private Chunk currentChunk;
-    private final int chunkSize;
+    private final ChunkPool chunkPool; // null if the chunks are those of a pane store
+    private final PaneStore paneStore; // the columns shared with the instances of the other ranges of MultiWindowConnectivity, null otherwise
+    // a chunk consists of panes of length gcd(range, slide), such that a range that is not a multiple of the slide is supported
+    private final long lengthOfPane;
+    private final int chunkSize; // range / lengthOfPane
+    private final int slideInChunk; // slide / lengthOfPane, the number of panes a window moves forward
     private int windowIndexInChunk; // if this value is 1, then the corresponding query needs to use BackwardBuffer
     private long startOfEachChunk;
+    private long startOfCurrentWindow;
     private final long durationOfChunk;
     private BackwardForwardBufferPair bf;
+    private final BackwardComputation backwardComputation;
+    private final ExecutorService backwardExecutor; // null if backward buffers are computed on the ingest thread
+    private DenseForwardBuffer denseForwardBuffer; // reused for every chunk in the dense-id mode, null otherwise
+    private IntColumnStore.OffHeapPool offHeapPool; // the off-heap columns of the following backward buffers, null if they are kept on the heap
+    private boolean batchQueryEvaluation; // label the components of the bridging view once per window, instead of a BFS per query
+    private boolean componentAggregates; // maintain the number of components and the component sizes of the windows
+    private boolean edgeDeletions; // the chunk of the backward buffer is retained, such that the backward buffer can be rebuilt after deletions
+    // the edges deleted since the last query, mapped to the number of edges of the current chunk at the deletion,
+    // i.e., the occurrences of the current chunk before it and every occurrence of the previous chunk are deleted
+    private final Long2IntOpenHashMap pendingDeletions;
+    private EdgeLog edgeLog; // null if the ingested edges are not logged
+    private boolean isRestored; // the next run continues from the window of the checkpoint, instead of starting at its first edge
+    private SuffixUnionFind suffixUnionFind; // created by the first query on a suffix that starts inside the current chunk
     static final int EMPTY_ROOT = -1;
-    static boolean[] base;
 
     @Deprecated
     public BidirectionalIncrementalConnectivity(Duration range, Duration slide, long firstTimeStamp) {
         super(range, slide);
         windowIndexInChunk = 0;
 
-        chunkSize = (int) (super.range / super.slide);
+        lengthOfPane = gcd(super.range, super.slide);
+        chunkSize = (int) (super.range / lengthOfPane);
+        slideInChunk = (int) (super.slide / lengthOfPane);
 
         startOfEachChunk = firstTimeStamp;
-        currentChunk = new Chunk(chunkSize, super.slide);
-        currentChunk.setStartTime(startOfEachChunk);
-
-        durationOfChunk = chunkSize * super.slide;
+        startOfCurrentWindow = firstTimeStamp;
+        chunkPool = new ChunkPool(chunkSize, lengthOfPane, false);
+        paneStore = null;
+        currentChunk = chunkPool.acquire(startOfEachChunk);
+        pendingDeletions = new Long2IntOpenHashMap();
+        pendingDeletions.defaultReturnValue(-1);
+
+        durationOfChunk = chunkSize * lengthOfPane;
+
+        BackwardBuffer emptyBackwardBuffer = new BackwardBuffer(new Chunk(chunkSize, lengthOfPane));
+        emptyBackwardBuffer.compute();
+        bf = new BackwardForwardBufferPair(emptyBackwardBuffer, new ForwardBuffer());
+        backwardComputation = BackwardComputation.SYNCHRONOUS;
+        backwardExecutor = null;
+    }
 
-        bf = new BackwardForwardBufferPair(new BackwardBuffer(new Chunk(chunkSize, super.slide)), new ForwardBuffer());
+    public BidirectionalIncrementalConnectivity(Duration range, Duration slide, long firstTimeStamp, List<IntIntPair> workloads) {
+        this(range, slide, firstTimeStamp, workloads, BackwardComputation.SYNCHRONOUS);
+    }
 
-        base = new boolean[chunkSize];
-        Arrays.fill(base, true);
+    public BidirectionalIncrementalConnectivity(Duration range, Duration slide, long firstTimeStamp, List<IntIntPair> workloads, BackwardComputation backwardComputation) {
+        this(range, slide, firstTimeStamp, workloads, backwardComputation, null);
     }
 
-    public BidirectionalIncrementalConnectivity(Duration range, Duration slide, long firstTimeStamp, List<IntIntPair> workloads) {
+    // the chunks are runs of the edges of the pane store, which are appended once for every instance sharing it, see MultiWindowConnectivity
+    BidirectionalIncrementalConnectivity(Duration range, Duration slide, long firstTimeStamp, List<IntIntPair> workloads, BackwardComputation backwardComputation,
+                                         PaneStore paneStore) {
         super(range, slide, workloads);
         windowIndexInChunk = 0;
 
-        chunkSize = (int) (super.range / super.slide);
+        lengthOfPane = gcd(super.range, super.slide);
+        chunkSize = (int) (super.range / lengthOfPane);
+        slideInChunk = (int) (super.slide / lengthOfPane);
 
         startOfEachChunk = firstTimeStamp;
-        currentChunk = new Chunk(chunkSize, super.slide);
-        currentChunk.setStartTime(startOfEachChunk);
-
-        durationOfChunk = chunkSize * super.slide;
-
-        bf = new BackwardForwardBufferPair(new BackwardBuffer(new Chunk(chunkSize, super.slide), workloads), new ForwardBuffer(workloads));
-
-        base = new boolean[chunkSize];
-        Arrays.fill(base, true);
+        startOfCurrentWindow = firstTimeStamp;
+        this.paneStore = paneStore;
+        chunkPool = paneStore == null ? new ChunkPool(chunkSize, lengthOfPane, false) : null;
+        currentChunk = acquireChunk(startOfEachChunk);
+        pendingDeletions = new Long2IntOpenHashMap();
+        pendingDeletions.defaultReturnValue(-1);
+
+        durationOfChunk = chunkSize * lengthOfPane;
+
+        BackwardBuffer emptyBackwardBuffer = new BackwardBuffer(new Chunk(chunkSize, lengthOfPane), workloads);
+        emptyBackwardBuffer.compute();
+        bf = new BackwardForwardBufferPair(emptyBackwardBuffer, new ForwardBuffer(workloads));
+
+        this.backwardComputation = backwardComputation;
+        backwardExecutor = backwardComputation == BackwardComputation.ASYNCHRONOUS
+                ? Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "bic-backward-buffer");
+                    thread.setDaemon(true); // the ingest thread owns the lifecycle, a pending computation never blocks the JVM from exiting
+                    return thread;
+                })
+                : null;
     }
 
 
@@ -61,89 +121,595 @@ public class BidirectionalIncrementalConnectivity extends AbstractSlidingWindowC
     // the query operation will take forward and backward buffer from the queues and set up the current forward and backward buffers
     @Override
     public void insert(StreamingEdge streamingEdge) {
+        insert(streamingEdge.source, streamingEdge.target, streamingEdge.timeStamp);
+    }
+
+    private void insert(int source, int target, long timeStamp) {
         // check if the current chunk is full, if so get the next chunk and insert into the current chunk
         // insert into the current chunk
+        advanceTo(timeStamp);
+        if (edgeLog != null) // the edge is logged into the segment of its chunk before it is applied
+            edgeLog.append(startOfEachChunk, source, target, timeStamp, false);
+        currentChunk.insert(source, target, timeStamp);
+        // the edge is in pane j of the current chunk, which is contained by the windows that start at index j + 1, ... of the backward buffer
+        int indexInB = currentChunk.getCurrentIndex() + 1;
+        bf.insert(source, target, indexInB == chunkSize ? 0 : indexInB);
+    }
 
-        if (!currentChunk.insert(streamingEdge)) { // current chunk is full
-            // add the vertex set of the complete chunk into the backward buffer, which help prune vertices that are not inter-vertices during inserting into TaskQueue
-            BackwardBuffer backwardBuffer = new BackwardBuffer(currentChunk, workload);
-//            long start = System.nanoTime();
+    // make the current chunk the one containing the timestamp
+    // panes may receive no edges if the pane is shorter than the slide, so the chunk is also advanced before answering a window
+    private void advanceTo(long timeStamp) {
+        long numOfChunks = (timeStamp - startOfEachChunk) / durationOfChunk;
+        if (numOfChunks <= 0)
+            return;
+        if (!pendingDeletions.isEmpty()) {
+            if (numOfChunks == 1) // the deleted edges of the complete chunk are skipped by its backward buffer
+                removeDeletedEdges(currentChunk, 0, true);
+            pendingDeletions.clear();
+        }
+        // the chunks in between received no edges, so the backward buffer of the chunk right before the new one is empty
+        if (numOfChunks > 1) // the edges of the current chunk are not in any following window
+            currentChunk.release();
+        Chunk completeChunk = numOfChunks == 1 ? currentChunk : acquireChunk(startOfEachChunk);
+        if (paneStore != null) // the columns of the complete chunk are not replaced anymore, as it may be read by another thread
+            paneStore.complete(completeChunk);
+        // add the vertex set of the complete chunk into the backward buffer, which help prune vertices that are not inter-vertices during inserting into TaskQueue
+        BackwardBuffer backwardBuffer = new BackwardBuffer(completeChunk, workload, offHeapPool, componentAggregates);
+        backwardBuffer.setRetainChunk(edgeDeletions);
+        bf.discard();
+        if (backwardComputation == BackwardComputation.SYNCHRONOUS) {
             backwardBuffer.compute();
-//            System.out.println("Backward buffer computation time: " + (System.nanoTime() - start));
+            bf = new BackwardForwardBufferPair(backwardBuffer, newForwardBuffer());
+        } else if (backwardComputation == BackwardComputation.ASYNCHRONOUS) // the complete chunk is handed over to the background executor, and the ingest of the next chunk starts immediately
+            bf = new BackwardForwardBufferPair(backwardBuffer, newForwardBuffer(), backwardExecutor.submit(backwardBuffer::compute));
+        else // the backward computation is spread over the edges of the first element of the next chunk
+            bf = new BackwardForwardBufferPair(backwardBuffer, newForwardBuffer(), getBackwardBudgetPerEdge(completeChunk));
+        if (componentAggregates)
+            bf.setComponentAggregates(chunkSize);
+
+        // get a new chunk, whose columns are reused from a chunk whose backward buffer has been computed
+        startOfEachChunk += numOfChunks * durationOfChunk;
+        currentChunk = acquireChunk(startOfEachChunk);
+    }
 
-            bf = new BackwardForwardBufferPair(backwardBuffer, new ForwardBuffer(workload));
+    private Chunk acquireChunk(long startTime) {
+        return paneStore == null ? chunkPool.acquire(startTime) : paneStore.acquire(chunkSize, lengthOfPane, startTime);
+    }
 
-            // get a new chunk
-            startOfEachChunk += durationOfChunk;
-            currentChunk = new Chunk(chunkSize, super.slide);
-            currentChunk.setStartTime(startOfEachChunk);
+    private ForwardBuffer newForwardBuffer() {
+        if (denseForwardBuffer == null)
+            return new ForwardBuffer(workload);
+        denseForwardBuffer.reset();
+        return denseForwardBuffer;
+    }
 
-            // insert edge into the new chunk
-            currentChunk.insert(streamingEdge);
+    static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
         }
-        bf.insert(streamingEdge, windowIndexInChunk);
+        return a;
     }
 
+    private void slideWindow() {
+        startOfCurrentWindow += slide;
+        windowIndexInChunk = (int) ((windowIndexInChunk + (long) slideInChunk) % chunkSize);
+    }
+
+    // the window position is advanced in O(1), and the chunk is advanced lazily by the next insert or query
     @Override
-    public void evict(long lessThan) {
+    protected void skipWindows(long numOfWindows) {
+        startOfCurrentWindow += numOfWindows * slide;
+        windowIndexInChunk = (int) ((windowIndexInChunk + numOfWindows % chunkSize * slideInChunk) % chunkSize);
     }
 
+    // the chunks are anchored at the first edge, which can be earlier than the first timestamp given to the constructor if the edges are reordered
+    @Override
+    protected long startAt(long firstTimeStamp) {
+        if (isRestored) {
+            isRestored = false;
+            return startOfCurrentWindow;
+        }
+        if (firstTimeStamp == startOfCurrentWindow)
+            return firstTimeStamp;
+        if (currentChunk.getNumOfEdges() > 0)
+            throw new IllegalStateException("The first window can only be moved before edges are inserted");
+        startOfEachChunk = firstTimeStamp;
+        startOfCurrentWindow = firstTimeStamp;
+        windowIndexInChunk = 0;
+        currentChunk.reset(firstTimeStamp);
+        return firstTimeStamp;
+    }
 
+    // a deletion is recorded in O(1), and the deleted edges are removed from the chunks at the next query, such that the buffers of a chunk are
+    // rebuilt at most once per window however many edges are deleted; the forward buffer and the bridging view are rebuilt if the current chunk
+    // is affected, and the backward buffer as well if the previous chunk is affected, where the first element of the previous chunk is not needed
     @Override
-    public boolean query(int source, int target) { // retrieve a computed backward buffer from the BackwardBuffer queue
+    public void delete(StreamingEdge streamingEdge) {
+        delete(streamingEdge.source, streamingEdge.target, streamingEdge.timeStamp);
+    }
 
-        boolean ret;
-        if (windowIndexInChunk == 0) {
-            // compute query result using forward buffer
-            ret = bf.queryWithF(source, target);
-        } else
-            ret = bf.queryWithBF(windowIndexInChunk, source, target);
+    private void delete(int source, int target, long timeStamp) {
+        if (!edgeDeletions)
+            throw new IllegalStateException("Edge deletions are not enabled, see setEdgeDeletions");
+        advanceTo(timeStamp);
+        if (edgeLog != null)
+            edgeLog.append(startOfEachChunk, source, target, timeStamp, true);
+        pendingDeletions.put(edgeKey(source, target), currentChunk.getNumOfEdges());
+    }
+
+    // a record of the edge log, the windows that end before it were answered before the restart, so they are skipped instead of queried
+    void replay(int source, int target, long timeStamp, boolean isDeletion) {
+        if (timeStamp - startOfCurrentWindow >= range)
+            skipWindows((timeStamp - range - startOfCurrentWindow) / slide + 1);
+        if (isDeletion)
+            delete(source, target, timeStamp);
+        else
+            insert(source, target, timeStamp);
+    }
 
-        if (++windowIndexInChunk == chunkSize)
-            windowIndexInChunk = 0;
+    private static long edgeKey(int source, int target) {
+        return (long) Math.min(source, target) << 32 | Math.max(source, target) & 0xFFFFFFFFL;
+    }
+
+    private void applyDeletions() {
+        if (pendingDeletions.isEmpty())
+            return;
+        bf.awaitBackwardBuffer(); // the previous chunk is not read by a backward computation anymore
+        Chunk previousChunk = bf.b.getChunk();
+        int lastRemovedInB = previousChunk == null ? -1 : removeDeletedEdges(previousChunk, previousChunk.getStartOfElement(1), false);
+        boolean isBackwardAffected = lastRemovedInB != -1;
+        boolean isForwardAffected = removeDeletedEdges(currentChunk, 0, true) != -1;
+        pendingDeletions.clear();
+        if (!isBackwardAffected && !isForwardAffected)
+            return;
+        if (isForwardAffected && suffixUnionFind != null)
+            suffixUnionFind.invalidate();
+
+        // the bridging view depends on the trees of the backward buffer, and is built again with the forward buffer
+        BackwardBuffer backwardBuffer = bf.b;
+        if (isBackwardAffected)
+            backwardBuffer.recomputeFrom(previousChunk.getElementOf(lastRemovedInB));
+        backwardBuffer.bridgingViewStore.clear();
+        bf = new BackwardForwardBufferPair(backwardBuffer, newForwardBuffer());
+        if (componentAggregates)
+            bf.setComponentAggregates(chunkSize);
+        insertCurrentChunk();
+    }
+
+    // the edges of the current chunk are inserted again, into the forward buffer and the bridging view
+    private void insertCurrentChunk() {
+        for (int j = 0, last = currentChunk.getCurrentIndex(); j <= last; j++) {
+            int indexInB = j + 1 == chunkSize ? 0 : j + 1;
+            for (int i = currentChunk.getStartOfElement(j), end = currentChunk.getEndOfElement(j); i < end; i++)
+                if (!currentChunk.isRemoved(i))
+                    bf.insert(currentChunk.getSource(i), currentChunk.getTarget(i), indexInB);
+        }
+    }
+
+    // marks the deleted edges of the chunk from the position on as removed, and returns the last removed position, -1 if no edge is removed
+    private int removeDeletedEdges(Chunk chunk, int from, boolean isCurrentChunk) {
+        int ret = -1;
+        for (int i = from, end = chunk.getNumOfEdges(); i < end; i++) {
+            int deletedBefore = pendingDeletions.get(edgeKey(chunk.getSource(i), chunk.getTarget(i)));
+            if (deletedBefore != -1 && (!isCurrentChunk || i < deletedBefore) && !chunk.isRemoved(i)) {
+                chunk.remove(i);
+                ret = i;
+            }
+        }
         return ret;
     }
 
     @Override
-    public void query(List<IntIntPair> queries, List<List<Boolean>> outputStreams) {
+    public void evict(long lessThan) {
+    }
+
+
+    @Override
+    public boolean query(int source, int target) {
+        boolean ret = connected(source, target);
+        slideWindow();
+        return ret;
+    }
+
+    // ad-hoc query that is not registered in the workload, evaluated on the current window without sliding it
+    // vertices are looked up through small per-buffer node caches, and the bridging view is searched without allocation
+    public boolean connected(int source, int target) {
+        advanceTo(startOfCurrentWindow + range - 1);
+        applyDeletions();
+        if (windowIndexInChunk == 0)
+            return bf.queryWithF(source, target);
+        bf.awaitBackwardBuffer();
+        return bf.queryWithBF(windowIndexInChunk, source, target);
+    }
+
+    // ad-hoc query on the suffix of length rangeOfQuery of the current window, where rangeOfQuery is at most the range and a multiple of the pane
+    // a suffix starting in the previous chunk is answered by the buffer pair, as the backward buffer keeps the connectivity of every suffix of its panes,
+    // and a shorter suffix starting inside the current chunk is answered by a union-find over the edges of its panes, which are still in the chunk,
+    // which is built once per window and suffix, and extended by the edges inserted between two queries, see SuffixUnionFind
+    public boolean connected(int source, int target, Duration rangeOfQuery) {
+        long r = rangeOfQuery.toMillis();
+        if (r <= 0 || r > range || r % lengthOfPane != 0)
+            throw new IllegalArgumentException("The range of the query must be a positive multiple of " + lengthOfPane + " ms and at most the range");
+        long endOfWindow = startOfCurrentWindow + range - 1, startOfQuery = endOfWindow - r + 1;
+        advanceTo(endOfWindow);
+        applyDeletions();
+        if (startOfQuery > startOfEachChunk)
+            return connectedInCurrentChunk(source, target, (int) ((startOfQuery - startOfEachChunk) / lengthOfPane));
+        int index = indexInBackwardBuffer(startOfQuery);
+        if (index == 0)
+            return bf.queryWithF(source, target);
+        bf.awaitBackwardBuffer();
+        return bf.queryWithBF(index, source, target);
+    }
+
+    // the forward buffer covers the current chunk from its first pane, such that the panes from fromElement on are unioned separately
+    private boolean connectedInCurrentChunk(int source, int target, int fromElement) {
+        if (suffixUnionFind == null)
+            suffixUnionFind = new SuffixUnionFind();
+        return suffixUnionFind.connected(currentChunk, startOfEachChunk, fromElement, source, target);
+    }
+
+    // the number of connected components of the current window, i.e., the components of the backward buffer at the index of the window
+    // and of the forward buffer, minus the components merged by the bridging view, where only the merges are counted per window
+    public int numOfComponents() {
+        if (!componentAggregates)
+            throw new IllegalStateException("Component aggregates are not maintained, see setComponentAggregates");
+        advanceTo(startOfCurrentWindow + range - 1);
+        applyDeletions();
+        if (windowIndexInChunk != 0)
+            bf.awaitBackwardBuffer();
+        return bf.numOfComponents(windowIndexInChunk);
+    }
+
+    // the number of vertices of the component of v in the current window, 0 if v is not in the window
+    // the component is the trees of the buffers that are connected to the trees of v by the bridging view, whose sizes are known,
+    // minus the vertices that are in both buffers, which are counted per tree of the forward buffer
+    public int sizeOfComponent(int v) {
+        if (!componentAggregates)
+            throw new IllegalStateException("Component aggregates are not maintained, see setComponentAggregates");
+        advanceTo(startOfCurrentWindow + range - 1);
+        applyDeletions();
+        if (windowIndexInChunk != 0)
+            bf.awaitBackwardBuffer();
+        return bf.sizeOfComponent(windowIndexInChunk, v);
+    }
+
+    // the index of the window starting at startOfWindow, which is aligned to the panes and is in the current or the previous chunk
+    // 0 if the window starts with the current chunk, i.e., only the forward buffer is needed
+    private int indexInBackwardBuffer(long startOfWindow) {
+        return (int) Math.floorMod((startOfWindow - startOfEachChunk) / lengthOfPane, (long) chunkSize);
+    }
+
+    @Override
+    public void query(List<IntIntPair> queries, long[] answers) {
+        advanceTo(startOfCurrentWindow + range - 1); // the last pane of the window may have received no edges
+        applyDeletions();
         if (windowIndexInChunk == 0) {
             // compute query result using forward buffer
-            for (int i = 0, num = queries.size(); i < num; i++)
-                outputStreams.get(i).add(bf.queryWithF(i));
-        } else
-            for (int i = 0, num = queries.size(); i < num; i++)
-                outputStreams.get(i).add(bf.queryWithBF(windowIndexInChunk, i));
-        if (++windowIndexInChunk == chunkSize)
-            windowIndexInChunk = 0;
+            for (int i = 0, num = queries.size(); i < num; i++) {
+                if (queries.get(i) != null && bf.queryWithF(i)) // skip unregistered queries
+                    answers[i >>> 6] |= 1L << i;
+            }
+        } else {
+            bf.awaitBackwardBuffer(); // only blocks if the backward buffer of the previous chunk is still being computed
+            if (batchQueryEvaluation) {
+                bf.startBatch();
+                for (int i = 0, num = queries.size(); i < num; i++) {
+                    if (queries.get(i) != null && bf.queryWithBF(windowIndexInChunk, i, true))
+                        answers[i >>> 6] |= 1L << i;
+                }
+            } else
+                for (int i = 0, num = queries.size(); i < num; i++) {
+                    if (queries.get(i) != null && bf.queryWithBF(windowIndexInChunk, i, false))
+                        answers[i >>> 6] |= 1L << i;
+                }
+        }
+        slideWindow();
+    }
+
+    // answer the registered queries in the slots on the window starting at startOfWindow, which is aligned to the panes, without sliding the window
+    // the windows of several specifications with this range are answered by one instance, in the order of their starts, see MultiWindowConnectivity
+    // bit i of answers is set iff the query in slots[i] is connected, and answers must be cleared for slots.length bits
+    void queryWindow(long startOfWindow, int[] slots, long[] answers) {
+        startOfCurrentWindow = startOfWindow;
+        advanceTo(startOfWindow + range - 1);
+        applyDeletions();
+        windowIndexInChunk = indexInBackwardBuffer(startOfWindow);
+        if (windowIndexInChunk == 0) {
+            for (int i = 0; i < slots.length; i++)
+                if (bf.queryWithF(slots[i]))
+                    answers[i >>> 6] |= 1L << i;
+        } else {
+            bf.awaitBackwardBuffer();
+            if (batchQueryEvaluation)
+                bf.startBatch();
+            for (int i = 0; i < slots.length; i++)
+                if (bf.queryWithBF(windowIndexInChunk, slots[i], batchQueryEvaluation))
+                    answers[i >>> 6] |= 1L << i;
+        }
+    }
+
+    // a checkpoint of the state that is needed to continue the stream, see Checkpoint
+    // the copy is taken on the ingest thread in time linear in the size of the buffers, waiting for a backward buffer that is still computed,
+    // and can be written by another thread afterwards
+    public Checkpoint checkpoint() {
+        applyDeletions();
+        bf.awaitBackwardBuffer();
+        Chunk previousChunk = bf.b.getChunk();
+        int modes = (denseForwardBuffer != null ? Checkpoint.DENSE_VERTEX_IDS : 0)
+                | (offHeapPool != null ? Checkpoint.OFF_HEAP_BACKWARD_BUFFERS : 0)
+                | (batchQueryEvaluation ? Checkpoint.BATCH_QUERY_EVALUATION : 0)
+                | (edgeDeletions ? Checkpoint.EDGE_DELETIONS : 0)
+                | (componentAggregates ? Checkpoint.COMPONENT_AGGREGATES : 0);
+        return new Checkpoint(range, slide, modes, startOfCurrentWindow, windowIndexInChunk, edgeLog == null ? -1 : edgeLog.getNumOfRecords(startOfEachChunk), new ArrayList<>(workload),
+                bf.b.copyColumns(), previousChunk == null ? null : previousChunk.copy(), currentChunk.copy());
+    }
+
+    public static BidirectionalIncrementalConnectivity restore(InputStream inputStream, BackwardComputation backwardComputation) throws IOException {
+        return restore(Checkpoint.readFrom(inputStream), backwardComputation);
+    }
+
+    // the backward buffer is set to the union-find of the checkpoint, and the forward buffer and the bridging view are rebuilt from the current chunk,
+    // such that the restore takes time linear in the size of the checkpoint, instead of ingesting a range of edges
+    // the next run of computeSlidingWindowConnectivity continues from the window of the checkpoint with the edges after it
+    public static BidirectionalIncrementalConnectivity restore(Checkpoint checkpoint, BackwardComputation backwardComputation) {
+        Chunk currentChunk = checkpoint.currentChunk.copy(), previousChunk = checkpoint.previousChunk == null ? null : checkpoint.previousChunk.copy();
+        BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(Duration.ofMillis(checkpoint.range), Duration.ofMillis(checkpoint.slide),
+                currentChunk.getStartTime(), checkpoint.workload, backwardComputation);
+        bic.setDenseVertexIds((checkpoint.modes & Checkpoint.DENSE_VERTEX_IDS) != 0);
+        bic.setOffHeapBackwardBuffers((checkpoint.modes & Checkpoint.OFF_HEAP_BACKWARD_BUFFERS) != 0);
+        bic.setBatchQueryEvaluation((checkpoint.modes & Checkpoint.BATCH_QUERY_EVALUATION) != 0);
+        bic.setEdgeDeletions((checkpoint.modes & Checkpoint.EDGE_DELETIONS) != 0);
+        bic.setComponentAggregates((checkpoint.modes & Checkpoint.COMPONENT_AGGREGATES) != 0);
+
+        BackwardBuffer backwardBuffer = new BackwardBuffer(previousChunk != null ? previousChunk : new Chunk(bic.chunkSize, bic.lengthOfPane),
+                bic.workload, bic.offHeapPool, bic.componentAggregates);
+        backwardBuffer.setRetainChunk(previousChunk != null);
+        backwardBuffer.restore(checkpoint.backwardBufferColumns);
+        bic.bf.discard();
+        bic.bf = new BackwardForwardBufferPair(backwardBuffer, bic.newForwardBuffer());
+        if (bic.componentAggregates)
+            bic.bf.setComponentAggregates(bic.chunkSize);
+
+        bic.currentChunk.release();
+        bic.currentChunk = currentChunk;
+        bic.startOfEachChunk = currentChunk.getStartTime();
+        bic.startOfCurrentWindow = checkpoint.startOfCurrentWindow;
+        bic.windowIndexInChunk = checkpoint.windowIndexInChunk;
+        bic.insertCurrentChunk();
+        bic.isRestored = true;
+        return bic;
     }
 
+    // the checkpoint is restored, and the records of the edge log after its position are applied, i.e., the edges that were ingested after the checkpoint;
+    // the windows that end before the last record were answered before the restart, and the next run continues from the window containing it,
+    // i.e., a window that was answered after the last record, e.g., before an edge between two windows that is not inserted, is answered again
+    // the edges ingested afterwards are appended to the edge log
+    public static BidirectionalIncrementalConnectivity restore(Checkpoint checkpoint, EdgeLog edgeLog, BackwardComputation backwardComputation) throws IOException {
+        if (checkpoint.logPosition == -1)
+            throw new IllegalArgumentException("The checkpoint was taken without an edge log, see setEdgeLog");
+        BidirectionalIncrementalConnectivity bic = restore(checkpoint, backwardComputation);
+        edgeLog.replay(checkpoint.currentChunk.getStartTime(), checkpoint.logPosition, bic);
+        bic.edgeLog = edgeLog;
+        return bic;
+    }
+
+    // JOL only walks the heap, such that the memory of the direct buffers of the off-heap columns is added by their capacity
     @Override
     public long memoryConsumption() {
-        return GraphLayout.parseInstance(this).totalSize();
+        return GraphLayout.parseInstance(this).totalSize() + bf.b.offHeapSizeInBytes() + (offHeapPool == null ? 0 : offHeapPool.sizeInBytes());
+    }
+
+    // the current chunk, and the buffers of the previous and the current chunks, the pooled chunks are not counted
+    @Override
+    public long estimatedMemoryConsumption() {
+        return currentChunk.estimatedMemoryConsumption() + bf.f.estimatedMemoryConsumption() + bf.b.estimatedMemoryConsumption()
+                + bf.estimatedAggregatesMemoryConsumption() + (offHeapPool == null ? 0 : offHeapPool.sizeInBytes());
+    }
+
+    // the buffers of the current chunk are updated in place, and the buffers of the following chunks are created from the workload
+    @Override
+    public int registerQuery(int source, int target) {
+        int slot = super.registerQuery(source, target);
+        bf.registerQuery(slot, source, target);
+        return slot;
+    }
+
+    // in the batch mode, the components of the bridging view are labelled lazily from the roots touched by the workload,
+    // such that every component is explored at most once per window, and each query is answered by comparing labels
+    public void setBatchQueryEvaluation(boolean batchQueryEvaluation) {
+        this.batchQueryEvaluation = batchQueryEvaluation;
+    }
+
+    // in the dense-id mode, vertices are mapped to contiguous ids, and the forward buffer is a union-find over int arrays
+    // that is reset at each chunk boundary by clearing the touched vertices, instead of a tree node per vertex in a hash map;
+    // the ids of vertices that no longer occur are dropped at a chunk boundary, see DenseForwardBuffer
+    // the mode can only be changed before an edge is inserted into the current chunk
+    public void setDenseVertexIds(boolean denseVertexIds) {
+        if (currentChunk.getNumOfEdges() > 0)
+            throw new IllegalStateException("The dense-id mode can only be changed before edges are inserted into the current chunk");
+        denseForwardBuffer = denseVertexIds ? new DenseForwardBuffer(workload, new VertexDictionary()) : null;
+        bf.f = newForwardBuffer();
+    }
+
+    // the backward buffer of a chunk is needed by the query at index 1, i.e., after the first element of the next chunk is ingested,
+    // such that the work is spread evenly over the edges of that element, estimated by the average number of edges per element
+    private int getBackwardBudgetPerEdge(Chunk chunk) {
+        int work = chunk.getNumOfEdges() - chunk.getNumOfEdgesInElement(0); // chunk[0] is not needed
+        int edgesPerElement = Math.max(1, chunk.getNumOfEdges() / chunkSize);
+        return Math.max(1, (work + edgesPerElement - 1) / edgesPerElement);
+    }
+
+    // in the edge-deletion mode, the chunk of the backward buffer is kept until the backward buffer is replaced, such that it can be rebuilt
+    // the mode can only be changed before an edge is inserted into the current chunk
+    public void setEdgeDeletions(boolean edgeDeletions) {
+        if (currentChunk.getNumOfEdges() > 0)
+            throw new IllegalStateException("The edge-deletion mode can only be changed before edges are inserted into the current chunk");
+        this.edgeDeletions = edgeDeletions;
+    }
+
+    // the component aggregates are kept per chunk, the backward buffer links the children of a tree to know its size at every index,
+    // and the pair counts the components of the forward buffer and the vertices of each of its trees that are in the backward buffer
+    // the mode can only be changed before the first edge is inserted, as the backward buffer of the previous chunk is built with the aggregates
+    public void setComponentAggregates(boolean componentAggregates) {
+        if (currentChunk.getNumOfEdges() > 0 || !bf.b.isDone.get() || !bf.b.vertex2Id.isEmpty())
+            throw new IllegalStateException("The component aggregates can only be changed before the first edge is inserted");
+        this.componentAggregates = componentAggregates;
+        if (componentAggregates)
+            bf.setComponentAggregates(chunkSize);
+    }
+
+    // the ingested edges and deletions are appended to the edge log before they are applied, such that a restore from a checkpoint replays the edges after it
+    // the edge log is owned by the caller, which closes it, and truncates it once a checkpoint is written
+    public void setEdgeLog(EdgeLog edgeLog) {
+        this.edgeLog = edgeLog;
+    }
+
+    // the backward buffers of the following chunks keep their labelled union-find off-heap, such that the largest short-lived
+    // structure is not traced or copied by the garbage collector; the direct buffers are returned to a pool as soon as the buffer pair is replaced,
+    // and reused by the backward buffer of a later chunk, such that the off-heap memory is bounded by about three backward buffers of the largest chunk
+    // Java 11 cannot free a direct buffer explicitly, such that the buffers replaced when a pooled one is too small, and the pooled ones after shutdown,
+    // are reclaimed only when the garbage collector collects them, which counts against -XX:MaxDirectMemorySize until then
+    public void setOffHeapBackwardBuffers(boolean offHeapBackwardBuffers) {
+        if (offHeapBackwardBuffers != (offHeapPool != null))
+            offHeapPool = offHeapBackwardBuffers ? new IntColumnStore.OffHeapPool() : null;
+    }
+
+    // stops the background executor of the asynchronous mode, and returns the off-heap columns of the current backward buffer to the pool,
+    // whose direct buffers are reclaimed by the garbage collector with the instance; the instance must not be used afterwards
+    public void shutdown() {
+        bf.discard();
+        if (backwardExecutor != null)
+            backwardExecutor.shutdownNow();
+    }
+
+    public enum BackwardComputation {
+        SYNCHRONOUS, // the backward buffer is computed on the ingest thread as soon as a chunk is complete
+        ASYNCHRONOUS, // the backward buffer is computed by a background executor, while the next chunk is being ingested
+        INCREMENTAL // the backward buffer is computed piecewise on the ingest thread, a few edges per ingested edge of the next chunk
     }
 
     private static class BackwardForwardBufferPair {
         private final BackwardBuffer b;
-        private final ForwardBuffer f;
+        private ForwardBuffer f; // replaced only while the chunk is empty
 
         private final RootPair rootsInF, rootsInB;
 
+        // the pending computation of b, and the updates of the bridging view that arrived before b was ready
+        private final Future<?> backwardComputation;
+        private final int backwardBudgetPerEdge; // the number of edges processed by the incremental backward computation per ingested edge
+        private final IntArrayList pendingUpdates;
+        private final IntArrayList pendingRegistrations; // (slot, source, target) of queries registered while b was computed
+
+        // the component aggregates, null if they are not maintained
+        private int numOfComponentsInF;
+        private Int2IntOpenHashMap numOfSharedVertices; // a root in f to the number of vertices of its tree that are in b at the index sharedFrom
+        private IntArrayList[] sharedVertices; // the vertices of f that are in b, by their vertex label in b
+        private int sharedFrom;
+        private IntArrayList rootsOfComponentInF, rootsOfComponentInB;
+
         public BackwardForwardBufferPair(BackwardBuffer backwardBuffer, ForwardBuffer forwardBuffer) {
+            this(backwardBuffer, forwardBuffer, null, 0);
+        }
+
+        public BackwardForwardBufferPair(BackwardBuffer backwardBuffer, ForwardBuffer forwardBuffer, Future<?> backwardComputation) {
+            this(backwardBuffer, forwardBuffer, backwardComputation, 0);
+        }
+
+        public BackwardForwardBufferPair(BackwardBuffer backwardBuffer, ForwardBuffer forwardBuffer, int backwardBudgetPerEdge) {
+            this(backwardBuffer, forwardBuffer, null, backwardBudgetPerEdge);
+        }
+
+        private BackwardForwardBufferPair(BackwardBuffer backwardBuffer, ForwardBuffer forwardBuffer, Future<?> backwardComputation, int backwardBudgetPerEdge) {
             // bridging view is embedded in backward buffer
             // as the updates can be performed in a more efficient way by directly accessing augmented tree node in backward buffer
             b = backwardBuffer;
             f = forwardBuffer;
             rootsInF = new RootPair(); // for the case of inter-buffer checking
             rootsInB = new RootPair(); // for the case of inter-buffer checking
+            this.backwardComputation = backwardComputation;
+            this.backwardBudgetPerEdge = backwardBudgetPerEdge;
+            this.pendingUpdates = new IntArrayList();
+            this.pendingRegistrations = new IntArrayList();
+        }
+
+        // wait for the backward buffer, and apply the updates of the bridging view that were postponed while it was computed
+        void awaitBackwardBuffer() {
+            if (!b.isDone.get() && backwardComputation == null) // finish the rest of the incremental computation
+                b.compute();
+            else if (!b.isDone.get()) {
+                try {
+                    backwardComputation.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+            if (!pendingUpdates.isEmpty()) {
+                int[] updates = pendingUpdates.elements();
+                for (int i = 0, size = pendingUpdates.size(); i < size; i += 6)
+                    updateBridgingView(updates[i], updates[i + 1], updates[i + 2], updates[i + 3], updates[i + 4], updates[i + 5]);
+                pendingUpdates.clear();
+            }
+            if (!pendingRegistrations.isEmpty()) {
+                int[] registrations = pendingRegistrations.elements();
+                for (int i = 0, size = pendingRegistrations.size(); i < size; i += 3)
+                    b.registerQuery(registrations[i], registrations[i + 1], registrations[i + 2]);
+                pendingRegistrations.clear();
+            }
+        }
+
+        void registerQuery(int slot, int source, int target) {
+            f.registerQuery(slot, source, target);
+            if (b.isDone.get() && pendingRegistrations.isEmpty())
+                b.registerQuery(slot, source, target);
+            else { // the workload of b is set up at the end of its computation, which may be running on another thread
+                pendingRegistrations.add(slot);
+                pendingRegistrations.add(source);
+                pendingRegistrations.add(target);
+            }
+        }
+
+        // the pair is replaced at a chunk boundary, such that a computation that has not started yet is not needed anymore
+        // off-heap columns and a retained chunk are released immediately, after waiting for a computation that is still running on the background thread
+        void discard() {
+            if (!b.isOffHeap() && !b.isChunkRetained()) {
+                if (backwardComputation != null)
+                    backwardComputation.cancel(false);
+                return;
+            }
+            if (backwardComputation != null) { // a cancelled computation may still be running, so it is awaited instead
+                try {
+                    backwardComputation.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+            b.free();
         }
 
-        void insert(StreamingEdge streamingEdge, int indexInB) {
+        void insert(int source, int target, int indexInB) {
             // 1. insert into f
             // 2. update bridging view
             //      2.1 update forward vertex
             //      2.2 insert new edges into bridging view
-            RootAndChild rootAndChildInF = f.insertEdgeAndGetRoots(streamingEdge.source, streamingEdge.target);
+            RootAndChild rootAndChildInF = f.insertEdgeAndGetRoots(source, target);
+
+            if (backwardBudgetPerEdge > 0)
+                b.computeStep(backwardBudgetPerEdge);
 
+            int newVertices = 0; // bit 0 for source and bit 1 for target, if they are new in f and component aggregates are maintained
+            if (numOfSharedVertices != null) {
+                newVertices = (rootAndChildInF.isSourceNew ? 1 : 0) | (rootAndChildInF.isTargetNew ? 2 : 0);
+                numOfComponentsInF += Integer.bitCount(newVertices) - (rootAndChildInF.child != EMPTY_ROOT ? 1 : 0);
+            }
 
             if (indexInB == 0)
                 return;
@@ -152,18 +718,128 @@ public class BidirectionalIncrementalConnectivity extends AbstractSlidingWindowC
             int rootInF = rootAndChildInF.root; // the root after inserting the streaming edge
             int oldRootInF = rootAndChildInF.child; // the child of the new root, such that the child was a root before inserting the streaming edge
 
-            if (oldRootInF != EMPTY_ROOT) // the case that update f in the bipartite graph
+            if (!pendingUpdates.isEmpty() || !b.isDone.get()) { // b is still being computed, postpone the update of the bridging view
+                if (b.isDone.get()) // apply the postponed updates as early as possible
+                    awaitBackwardBuffer();
+                else {
+                    pendingUpdates.add(source);
+                    pendingUpdates.add(target);
+                    pendingUpdates.add(rootInF);
+                    pendingUpdates.add(oldRootInF);
+                    pendingUpdates.add(indexInB);
+                    pendingUpdates.add(newVertices);
+                    return;
+                }
+            }
+            updateBridgingView(source, target, rootInF, oldRootInF, indexInB, newVertices);
+        }
+
+        private void updateBridgingView(int source, int target, int rootInF, int oldRootInF, int indexInB, int newVertices) {
+            if (oldRootInF != EMPTY_ROOT) { // the case that update f in the bipartite graph
                 b.updateNewRootInF(oldRootInF, rootInF);
+                if (numOfSharedVertices != null) {
+                    int num = numOfSharedVertices.remove(oldRootInF);
+                    if (num != 0)
+                        numOfSharedVertices.addTo(rootInF, num);
+                }
+            }
+
+            b.insertBGEdgeWithInterVertex(source, rootInF, indexInB); // the case of insert caused by inter-vertex
+            b.insertBGEdgeWithInterVertex(target, rootInF, indexInB); // the case of insert caused by inter-vertex
+
+            if ((newVertices & 1) != 0)
+                addSharedVertex(source, rootInF);
+            if ((newVertices & 2) != 0)
+                addSharedVertex(target, rootInF);
+        }
 
-            b.insertBGEdgeWithInterVertex(streamingEdge.source, rootInF, indexInB); // the case of insert caused by inter-vertex
-            b.insertBGEdgeWithInterVertex(streamingEdge.target, rootInF, indexInB); // the case of insert caused by inter-vertex
+        // must be called before an edge is inserted into the pair
+        void setComponentAggregates(int chunkSize) {
+            numOfSharedVertices = new Int2IntOpenHashMap();
+            sharedVertices = new IntArrayList[chunkSize];
+            sharedFrom = 1;
+            rootsOfComponentInF = new IntArrayList();
+            rootsOfComponentInB = new IntArrayList();
+        }
+
+        long estimatedAggregatesMemoryConsumption() {
+            if (numOfSharedVertices == null)
+                return 0;
+            long ret = OPEN_HASH_MAP + MemoryAccountable.openHashMapSlots(numOfSharedVertices.size(), 2 * Integer.BYTES) + (long) sharedVertices.length * REFERENCE;
+            for (IntArrayList vertices : sharedVertices)
+                if (vertices != null)
+                    ret += OBJECT_HEADER + ARRAY_HEADER + (long) vertices.elements().length * Integer.BYTES;
+            return ret;
+        }
+
+        // a vertex that is new in f is shared with b at the indexes up to its vertex label in b
+        private void addSharedVertex(int v, int rootInF) {
+            int label = b.vertexLabel(v);
+            if (label == BackwardBuffer.DEFAULT_VALUE)
+                return;
+            if (sharedVertices[label] == null)
+                sharedVertices[label] = new IntArrayList();
+            sharedVertices[label].add(v);
+            if (label >= sharedFrom)
+                numOfSharedVertices.addTo(rootInF, 1);
+        }
+
+        // the shared vertices are counted at the index of the queried window, the windows of a chunk move the index forward
+        // such that a vertex stops being counted once, when the index passes its vertex label
+        private void moveSharedFrom(int index) {
+            for (; sharedFrom < index; sharedFrom++)
+                updateSharedVertices(sharedVertices[sharedFrom], -1);
+            while (sharedFrom > index)
+                updateSharedVertices(sharedVertices[--sharedFrom], 1);
+        }
+
+        private void updateSharedVertices(IntArrayList vertices, int delta) {
+            if (vertices == null)
+                return;
+            for (IntIterator it = vertices.iterator(); it.hasNext(); )
+                numOfSharedVertices.addTo(f.findRoot(it.nextInt()), delta);
+        }
+
+        int numOfComponents(int indexInB) {
+            if (indexInB == 0)
+                return numOfComponentsInF;
+            return b.numOfComponents(indexInB) + numOfComponentsInF - b.bridgingViewStore.numOfMerges(indexInB);
+        }
+
+        int sizeOfComponent(int indexInB, int v) {
+            int rootInF = f.findRoot(v);
+            if (indexInB == 0)
+                return rootInF == EMPTY_ROOT ? 0 : f.sizeOfRoot(rootInF);
+            int rootInB = b.findRoot(v, indexInB);
+            if (rootInF == EMPTY_ROOT && rootInB == EMPTY_ROOT)
+                return 0;
+
+            moveSharedFrom(indexInB);
+            rootsOfComponentInF.clear();
+            rootsOfComponentInB.clear();
+            b.bridgingViewStore.collectComponent(rootInF, rootInB, indexInB, rootsOfComponentInF, rootsOfComponentInB);
+            int size = 0;
+            for (int i = 0, num = rootsOfComponentInF.size(); i < num; i++) {
+                int root = rootsOfComponentInF.getInt(i);
+                size += f.sizeOfRoot(root) - numOfSharedVertices.get(root);
+            }
+            for (int i = 0, num = rootsOfComponentInB.size(); i < num; i++)
+                size += b.sizeOfRoot(rootsOfComponentInB.getInt(i), indexInB);
+            return size;
         }
 
         boolean queryWithF(int workLoadIndex) {
             return f.intraConnected(workLoadIndex);
         }
 
-        boolean queryWithBF(int indexInB, int workloadIndex) {
+        void startBatch() {
+            b.bridgingViewStore.startBatch();
+        }
+
+        boolean queryWithBF(int indexInB, int workloadIndex, boolean batch) {
+            if (b.intraConnectedByThreshold(workloadIndex, indexInB)) // b alone answers true, no root walks are needed
+                return true;
+
             rootsInF.sourceRoot = EMPTY_ROOT;
             rootsInF.targetRoot = EMPTY_ROOT;
             rootsInB.sourceRoot = EMPTY_ROOT;
@@ -198,25 +874,26 @@ public class BidirectionalIncrementalConnectivity extends AbstractSlidingWindowC
             if (rootsInB.sourceRoot != EMPTY_ROOT && rootsInB.sourceRoot == rootsInB.targetRoot)// intra connected in B
                 return true;
 
+            if (batch)
+                return b.bridgingViewStore.queryByComponents(rootsInB, rootsInF, indexInB);
             return b.bridgingViewStore.query(rootsInB, rootsInF, indexInB);
         }
 
-        @Deprecated
         boolean queryWithF(int source, int target) {
-            return f.intraConnected(source, target);
+            f.findRoots(source, target, rootsInF);
+            return rootsInF.sourceRoot != EMPTY_ROOT && rootsInF.sourceRoot == rootsInF.targetRoot;
         }
 
-        @Deprecated
         boolean queryWithBF(int indexInB, int source, int target) {
-            if (f.intraConnected(source, target, rootsInF))
+            f.findRoots(source, target, rootsInF);
+            if (rootsInF.sourceRoot != EMPTY_ROOT && rootsInF.sourceRoot == rootsInF.targetRoot) // intra connected in F
                 return true;
-            if (b.intraConnected(source, target, indexInB, rootsInB))
+            b.findRoots(source, target, indexInB, rootsInB);
+            if (rootsInB.sourceRoot != EMPTY_ROOT && rootsInB.sourceRoot == rootsInB.targetRoot) // intra connected in B
                 return true;
 
-            if (rootsInF.numOfEmpty + rootsInB.numOfEmpty >= 3) // three roots are empty, then return false
-                return false;
             if (rootsInF.sourceRoot == EMPTY_ROOT && rootsInB.sourceRoot == EMPTY_ROOT ||
-                    rootsInF.targetRoot == EMPTY_ROOT && rootsInB.targetRoot == EMPTY_ROOT)
+                    rootsInF.targetRoot == EMPTY_ROOT && rootsInB.targetRoot == EMPTY_ROOT) // source or target does not exist
                 return false;
 
             return b.bridgingViewStore.query(rootsInB, rootsInF, indexInB);
@@ -1,45 +1,186 @@
 package ca.uw.dsg.swc.bic;
 
+import ca.uw.dsg.swc.MemoryAccountable;
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
 
 import static ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity.EMPTY_ROOT;
 
-public class BridgingViewStore {
+public class BridgingViewStore implements MemoryAccountable {
+    private static final int BIPARTITE_EDGE = 32;
+
 
     // f2b and b2f store the same BipartiteEdges
     private final Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<BipartiteEdge>> f2B;
     private final Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<BipartiteEdge>> b2F;
 
     private final int chunkSize;
+    private int numOfEdges; // the number of bipartite edges, maintained for the memory estimate
+
+    // state of the bidirectional BFS, which is reused by every query such that a query does not allocate in the steady state
+    // vertices are mapped to dense indexes, and a vertex is visited by the current query if its mark equals the current epoch
+    private final Int2IntOpenHashMap fIndexes, bIndexes;
+    private int[] sourceVisitedF, sourceVisitedB, targetVisitedF, targetVisitedB;
+    private int epoch;
+    private final BipartiteVertexQueue sourceQueue, targetQueue;
+
+    // component labels of the batch evaluation, a label is valid if the vertex is marked in sourceVisitedF/B with the epoch of the batch
+    private int[] componentF, componentB;
+    private int numOfComponents;
+    private final Expansion expansion;
+
+    // the merges at trackedIndex, see numOfMerges, which are maintained by a union-find over the dense indexes, with F vertices at 2 * i and B vertices at 2 * i + 1;
+    // a root stores the number of vertices of its set, where an F vertex that is replaced by another root is not counted, and is not looked up anymore
+    private IntArrayList[] changedAt; // the B vertices whose bipartite edges differ between the indexes i and i + 1, null if the merges are not counted
+    private int[] mergeParent, mergeSize, mergeMarks;
+    private int trackedIndex;
+    private int numOfMergesAtTrackedIndex;
+    private final IntArrayList recounted, recountedVertices; // the dense indexes and the vertices from which the components are counted again once the index advances
+    private final IntArrayList exploredF, exploredB;
 
     public BridgingViewStore(int chunkSize) {
         this.b2F = new Int2ObjectOpenHashMap<>();
         this.f2B = new Int2ObjectOpenHashMap<>();
         this.chunkSize = chunkSize;
+
+        this.fIndexes = new Int2IntOpenHashMap();
+        this.bIndexes = new Int2IntOpenHashMap();
+        this.fIndexes.defaultReturnValue(EMPTY_ROOT);
+        this.bIndexes.defaultReturnValue(EMPTY_ROOT);
+        this.sourceVisitedF = new int[16];
+        this.targetVisitedF = new int[16];
+        this.sourceVisitedB = new int[16];
+        this.targetVisitedB = new int[16];
+        this.componentF = new int[16];
+        this.componentB = new int[16];
+        this.epoch = 0;
+        this.sourceQueue = new BipartiteVertexQueue();
+        this.targetQueue = new BipartiteVertexQueue();
+        this.expansion = new Expansion();
+        this.mergeParent = new int[0];
+        this.mergeSize = new int[0];
+        this.mergeMarks = new int[0];
+        this.trackedIndex = EMPTY_ROOT;
+        this.recounted = new IntArrayList();
+        this.recountedVertices = new IntArrayList();
+        this.exploredF = new IntArrayList();
+        this.exploredB = new IntArrayList();
+    }
+
+    // the merges are maintained from the first call of numOfMerges on, instead of being counted from the whole bridging view per call;
+    // must be called before an edge is inserted
+    void setMergeCounting() {
+        changedAt = new IntArrayList[chunkSize];
+    }
+
+    private void indexF(int vf) {
+        if (fIndexes.containsKey(vf))
+            return;
+        int index = fIndexes.size();
+        fIndexes.put(vf, index);
+        if (index == sourceVisitedF.length) {
+            sourceVisitedF = Arrays.copyOf(sourceVisitedF, index << 1);
+            targetVisitedF = Arrays.copyOf(targetVisitedF, index << 1);
+            componentF = Arrays.copyOf(componentF, index << 1);
+        }
+        ensureQueueCapacity();
+        addToMergeSets(index << 1);
+    }
+
+    private void indexB(int vb) {
+        if (bIndexes.containsKey(vb))
+            return;
+        int index = bIndexes.size();
+        bIndexes.put(vb, index);
+        if (index == sourceVisitedB.length) {
+            sourceVisitedB = Arrays.copyOf(sourceVisitedB, index << 1);
+            targetVisitedB = Arrays.copyOf(targetVisitedB, index << 1);
+            componentB = Arrays.copyOf(componentB, index << 1);
+        }
+        ensureQueueCapacity();
+        addToMergeSets(index << 1 | 1);
+    }
+
+    // a search enqueues a vertex at most once, such that the queues are grown on insertion and a query does not allocate
+    private void ensureQueueCapacity() {
+        int numOfVertices = fIndexes.size() + bIndexes.size();
+        sourceQueue.ensureCapacity(numOfVertices);
+        targetQueue.ensureCapacity(numOfVertices);
+    }
+
+    private static Int2ObjectOpenHashMap<BipartiteEdge> newAdjacencyList() {
+        Int2ObjectOpenHashMap<BipartiteEdge> adj = new Int2ObjectOpenHashMap<>();
+        adj.values(); // the view of values is created lazily and cached by the map, creating it here keeps queries allocation-free
+        return adj;
+    }
+
+    private int nextEpoch() {
+        if (++epoch == 0) { // the marks of the previous epochs wrap around, start over
+            Arrays.fill(sourceVisitedF, 0);
+            Arrays.fill(targetVisitedF, 0);
+            Arrays.fill(sourceVisitedB, 0);
+            Arrays.fill(targetVisitedB, 0);
+            Arrays.fill(mergeMarks, 0);
+            epoch = 1;
+        }
+        return epoch;
     }
 
 
     public void edgeInsertion(int vf, int vb, int low, int high) {
         // get the adjacency list of vf
-        Int2ObjectOpenHashMap<BipartiteEdge> vfAdj = f2B.computeIfAbsent(vf, k -> new Int2ObjectOpenHashMap<>());
+        Int2ObjectOpenHashMap<BipartiteEdge> vfAdj = f2B.computeIfAbsent(vf, k -> newAdjacencyList());
         BipartiteEdge bipartiteEdge = vfAdj.get(vb);
 
         if (bipartiteEdge == null) {// vf and vb are not adjacent
-            bipartiteEdge = new BipartiteEdge(vb, vf, chunkSize);
+            indexF(vf);
+            indexB(vb);
+            bipartiteEdge = new BipartiteEdge(vb, vf, bIndexes.get(vb), fIndexes.get(vf), chunkSize);
             vfAdj.put(vb, bipartiteEdge);
 
-            b2F.computeIfAbsent(vb, k -> new Int2ObjectOpenHashMap<>()).put(vf, bipartiteEdge);
+            b2F.computeIfAbsent(vb, k -> newAdjacencyList()).put(vf, bipartiteEdge);
+            numOfEdges++;
         }
         bipartiteEdge.intervals.insert(low, high); // insert intervals
+
+        if (changedAt != null) {
+            addChange(low - 1, vb);
+            addChange(high, vb);
+        }
+        if (trackedIndex != EMPTY_ROOT && low <= trackedIndex && trackedIndex <= high && union(bipartiteEdge.fIndex << 1, bipartiteEdge.bIndex << 1 | 1))
+            numOfMergesAtTrackedIndex++;
+    }
+
+    private void addChange(int index, int vb) {
+        if (index < 0 || index + 1 >= chunkSize)
+            return;
+        if (changedAt[index] == null)
+            changedAt[index] = new IntArrayList();
+        IntArrayList vertices = changedAt[index];
+        if (vertices.isEmpty() || vertices.getInt(vertices.size() - 1) != vb)
+            vertices.add(vb);
     }
 
 
     public void updateForwardV(int oldV, int newV) {
         if (f2B.containsKey(oldV)) { // oldV must be contained in the forward buffer
             Int2ObjectOpenHashMap<BipartiteEdge> oldVAdj = f2B.remove(oldV); // vertices and intervals adjacent to oldV
+            indexF(newV);
+            if (trackedIndex != EMPTY_ROOT) {
+                // newV replaces oldV, such that a component of both loses a vertex, and the components of either are merged without a new merge
+                int oldRoot = findMergeSet(fIndexes.get(oldV) << 1), newRoot = findMergeSet(fIndexes.get(newV) << 1);
+                if (oldRoot == newRoot)
+                    numOfMergesAtTrackedIndex--;
+                else
+                    link(oldRoot, newRoot);
+                mergeSize[newRoot]--;
+            }
 
             if (f2B.containsKey(newV)) { // if newV already exists
                 Int2ObjectOpenHashMap<BipartiteEdge> newVAdj = f2B.get(newV);
@@ -49,7 +190,7 @@ public class BridgingViewStore {
 
                     // change (vb, oldV) to be (vb, newV)
                     if (!newVAdj.containsKey(vb)) { // if newV is not adjacent to v that is adjacent to oldV, simple insertion
-                        BipartiteEdge temp = new BipartiteEdge(vb, newV, chunkSize);
+                        BipartiteEdge temp = new BipartiteEdge(vb, newV, bipartiteEdge.bIndex, fIndexes.get(newV), chunkSize);
                         temp.intervals.insertAll(bipartiteEdge.intervals);
                         newVAdj.put(vb, temp);
                         Int2ObjectOpenHashMap<BipartiteEdge> vbAdj = b2F.get(vb);
@@ -61,14 +202,17 @@ public class BridgingViewStore {
                         newVAdj.get(vb).intervals.insertAll(bipartiteEdge.intervals);
 
                         b2F.get(vb).remove(oldV);
+                        numOfEdges--;
                     }
                 }
             } else {
                 f2B.put(newV, oldVAdj); // insert newV and the bipartite edges
+                int newIndex = fIndexes.get(newV);
                 for (Int2ObjectMap.Entry<BipartiteEdge> entry : oldVAdj.int2ObjectEntrySet()) {  // for each (vb, BipartiteEdge) that is adjacent to oldV
                     int vb = entry.getIntKey();
                     BipartiteEdge bipartiteEdge = entry.getValue();
                     bipartiteEdge.vf = newV; // update the corresponding vf to newV
+                    bipartiteEdge.fIndex = newIndex;
                     Int2ObjectOpenHashMap<BipartiteEdge> vbAdj = b2F.get(vb);
                     vbAdj.remove(oldV);
                     vbAdj.put(newV, bipartiteEdge);
@@ -77,6 +221,42 @@ public class BridgingViewStore {
         }
     }
 
+    // the adjacency lists of the vertices, the bipartite edges with their intervals, and the dense indexes of the BFS
+    @Override
+    public long estimatedMemoryConsumption() {
+        int numOfAdjacencyLists = f2B.size() + b2F.size();
+        // a map with its initial arrays and its cached view of values, which is rarely grown as the vertices have a few bipartite edges
+        long perAdjacencyList = OPEN_HASH_MAP + OBJECT_HEADER + REFERENCE + MemoryAccountable.openHashMapSlots(Hash.DEFAULT_INITIAL_SIZE, Integer.BYTES + REFERENCE);
+        long perEdge = BIPARTITE_EDGE + IntervalStore.sizeInBytes(chunkSize);
+        return 2L * OPEN_HASH_MAP + MemoryAccountable.openHashMapSlots(f2B.size(), Integer.BYTES + REFERENCE) + MemoryAccountable.openHashMapSlots(b2F.size(), Integer.BYTES + REFERENCE)
+                + (long) numOfAdjacencyLists * perAdjacencyList + numOfEdges * perEdge
+                + 2L * OPEN_HASH_MAP + MemoryAccountable.openHashMapSlots(fIndexes.size(), 2 * Integer.BYTES) + MemoryAccountable.openHashMapSlots(bIndexes.size(), 2 * Integer.BYTES)
+                + (long) (sourceVisitedF.length + sourceVisitedB.length) * 3 * Integer.BYTES
+                + estimatedMergeCountingMemoryConsumption();
+    }
+
+    private long estimatedMergeCountingMemoryConsumption() {
+        if (changedAt == null)
+            return 0;
+        long ret = ARRAY_HEADER + (long) changedAt.length * REFERENCE + 3 * (ARRAY_HEADER + (long) mergeParent.length * Integer.BYTES);
+        for (IntArrayList vertices : changedAt)
+            if (vertices != null)
+                ret += OBJECT_HEADER + ARRAY_HEADER + (long) vertices.elements().length * Integer.BYTES;
+        return ret;
+    }
+
+    // remove every bipartite edge, the dense indexes are kept
+    void clear() {
+        f2B.clear();
+        b2F.clear();
+        numOfEdges = 0;
+        trackedIndex = EMPTY_ROOT;
+        if (changedAt != null)
+            for (IntArrayList vertices : changedAt)
+                if (vertices != null)
+                    vertices.clear();
+    }
+
     boolean query(RootPair rootsInB, RootPair rootsInF, int index) {
         int sourceB = rootsInB.sourceRoot,
                 sourceF = rootsInF.sourceRoot,
@@ -85,25 +265,34 @@ public class BridgingViewStore {
         boolean ret = false;
 
         // initialization of the bidirectional BFS on the bipartite graph
-        IntOpenHashSet sourceVisitedF = new IntOpenHashSet(), sourceVisitedB = new IntOpenHashSet(), targetVisitedF = new IntOpenHashSet(), targetVisitedB = new IntOpenHashSet();
-        BipartiteVertexQueue sourceQueue = new BipartiteVertexQueue(), targetQueue = new BipartiteVertexQueue();
+        final int epoch = nextEpoch();
+        sourceQueue.clear();
+        targetQueue.clear();
 
-        // set up visited vertices and queues
+        // set up visited vertices and queues, a root without bipartite edges cannot be reached by the other search
         if (sourceB != EMPTY_ROOT) {
-            sourceVisitedB.add(sourceB);
             sourceQueue.enqueue(sourceB, BipartiteVertex.V_B);
+            int i = bIndexes.get(sourceB);
+            if (i != EMPTY_ROOT)
+                sourceVisitedB[i] = epoch;
         }
         if (sourceF != EMPTY_ROOT) {
-            sourceVisitedF.add(sourceF);
             sourceQueue.enqueue(sourceF, BipartiteVertex.V_F);
+            int i = fIndexes.get(sourceF);
+            if (i != EMPTY_ROOT)
+                sourceVisitedF[i] = epoch;
         }
         if (targetB != EMPTY_ROOT) {
-            targetVisitedB.add(targetB);
             targetQueue.enqueue(targetB, BipartiteVertex.V_B);
+            int i = bIndexes.get(targetB);
+            if (i != EMPTY_ROOT)
+                targetVisitedB[i] = epoch;
         }
         if (targetF != EMPTY_ROOT) {
-            targetVisitedF.add(targetF);
             targetQueue.enqueue(targetF, BipartiteVertex.V_F);
+            int i = fIndexes.get(targetF);
+            if (i != EMPTY_ROOT)
+                targetVisitedF[i] = epoch;
         }
 
 
@@ -112,34 +301,24 @@ public class BridgingViewStore {
             BipartiteVertex vsbv = sourceQueue.dequeue();
             int vs = vsbv.v;
             if (vsbv.isF == BipartiteVertex.V_F) { // vertex vs in F
-                if (targetVisitedF.contains(vs)) { // searches from source and target visit the same vertex in F
+                int i = fIndexes.get(vs); // a vertex without a dense index has no bipartite edges, and can only be visited as a start vertex
+                if (i == EMPTY_ROOT ? vs == targetF : targetVisitedF[i] == epoch) { // searches from source and target visit the same vertex in F
                     ret = true;
                     break;
                 }
                 Int2ObjectOpenHashMap<BipartiteEdge> adjVs = f2B.get(vs);
-                if (adjVs != null) {
-                    for (Int2ObjectMap.Entry<BipartiteEdge> entry : adjVs.int2ObjectEntrySet()) { // iterating all the neighbours of v, which are in B
-                        if (!sourceVisitedB.contains(entry.getIntKey()) && entry.getValue().intervals.containsKey(index)) { // not visited, and interval includes index
-                            sourceVisitedB.add(entry.getIntKey());
-                            sourceQueue.enqueue(entry.getIntKey(), BipartiteVertex.V_B);
-                        }
-                    }
-                }
+                if (adjVs != null)
+                    expansion.expand(adjVs, sourceVisitedB, sourceQueue, BipartiteVertex.V_B, index, epoch); // iterating all the neighbours of v, which are in B
 
             } else { // vertex vs in B
-                if (targetVisitedB.contains(vs)) {
+                int i = bIndexes.get(vs);
+                if (i == EMPTY_ROOT ? vs == targetB : targetVisitedB[i] == epoch) {
                     ret = true;
                     break;
                 }
                 Int2ObjectOpenHashMap<BipartiteEdge> adjVs = b2F.get(vs);
-                if (adjVs != null) {
-                    for (Int2ObjectMap.Entry<BipartiteEdge> entry : adjVs.int2ObjectEntrySet()) {
-                        if (!sourceVisitedF.contains(entry.getIntKey()) && entry.getValue().intervals.containsKey(index)) {
-                            sourceVisitedF.add(entry.getIntKey());
-                            sourceQueue.enqueue(entry.getIntKey(), BipartiteVertex.V_F);
-                        }
-                    }
-                }
+                if (adjVs != null)
+                    expansion.expand(adjVs, sourceVisitedF, sourceQueue, BipartiteVertex.V_F, index, epoch);
             }
             // source end
             // ***********
@@ -147,78 +326,333 @@ public class BridgingViewStore {
             BipartiteVertex vtbv = targetQueue.dequeue();
             int vt = vtbv.v;
             if (vtbv.isF == BipartiteVertex.V_F) { // vertex vt in F
-                if (sourceVisitedF.contains(vt)) {
+                int i = fIndexes.get(vt);
+                if (i == EMPTY_ROOT ? vt == sourceF : sourceVisitedF[i] == epoch) {
                     ret = true;
                     break;
                 }
                 Int2ObjectOpenHashMap<BipartiteEdge> adjVt = f2B.get(vt);
-                if (adjVt != null) {
-                    for (Int2ObjectMap.Entry<BipartiteEdge> entry : adjVt.int2ObjectEntrySet()) {// iterating all the neighbours of v, which are in B
-                        if (!targetVisitedB.contains(entry.getIntKey()) && entry.getValue().intervals.containsKey(index)) {
-                            targetVisitedB.add(entry.getIntKey());
-                            targetQueue.enqueue(entry.getIntKey(), BipartiteVertex.V_B);
-                        }
-                    }
-                }
+                if (adjVt != null)
+                    expansion.expand(adjVt, targetVisitedB, targetQueue, BipartiteVertex.V_B, index, epoch); // iterating all the neighbours of v, which are in B
 
             } else { // vertex vt in B
-                if (sourceVisitedB.contains(vt)) {
+                int i = bIndexes.get(vt);
+                if (i == EMPTY_ROOT ? vt == sourceB : sourceVisitedB[i] == epoch) {
                     ret = true;
                     break;
                 }
                 Int2ObjectOpenHashMap<BipartiteEdge> adjVt = b2F.get(vt);
-                if (adjVt != null) {
-                    for (Int2ObjectMap.Entry<BipartiteEdge> entry : adjVt.int2ObjectEntrySet()) {
-                        if (!targetVisitedF.contains(entry.getIntKey()) && entry.getValue().intervals.containsKey(index)) {
-                            targetVisitedF.add(entry.getIntKey());
-                            targetQueue.enqueue(entry.getIntKey(), BipartiteVertex.V_F);
-                        }
-                    }
-                }
+                if (adjVt != null)
+                    expansion.expand(adjVt, targetVisitedF, targetQueue, BipartiteVertex.V_F, index, epoch);
             }
         }
         return ret;
     }
 
 
+    // invalidates the component labels of the previous batch
+    void startBatch() {
+        nextEpoch();
+        numOfComponents = 0;
+    }
+
+    // the batch counterpart of query, the roots are connected in the bipartite graph if they share a component label
+    // the intra-connected cases, i.e., the same root in F or in B, are checked by the caller
+    boolean queryByComponents(RootPair rootsInB, RootPair rootsInF, int index) {
+        int sourceF = componentOf(rootsInF.sourceRoot, BipartiteVertex.V_F, index),
+                sourceB = componentOf(rootsInB.sourceRoot, BipartiteVertex.V_B, index),
+                targetF = componentOf(rootsInF.targetRoot, BipartiteVertex.V_F, index),
+                targetB = componentOf(rootsInB.targetRoot, BipartiteVertex.V_B, index);
+        return sourceF != EMPTY_ROOT && (sourceF == targetF || sourceF == targetB) ||
+                sourceB != EMPTY_ROOT && (sourceB == targetF || sourceB == targetB);
+    }
+
+    // returns the label of the component of v in the bipartite graph restricted to the snapshot index,
+    // the component is labelled by a BFS the first time one of its vertices is looked up in the current batch
+    private int componentOf(int v, int isF, int index) {
+        if (v == EMPTY_ROOT)
+            return EMPTY_ROOT;
+        int i = isF == BipartiteVertex.V_F ? fIndexes.get(v) : bIndexes.get(v);
+        if (i == EMPTY_ROOT) // v does not have bipartite edges
+            return EMPTY_ROOT;
+        int[] visited = isF == BipartiteVertex.V_F ? sourceVisitedF : sourceVisitedB,
+                components = isF == BipartiteVertex.V_F ? componentF : componentB;
+        if (visited[i] == epoch)
+            return components[i];
+
+        final int label = numOfComponents++;
+        visited[i] = epoch;
+        components[i] = label;
+        sourceQueue.clear();
+        sourceQueue.enqueue(v, isF);
+        while (!sourceQueue.isEmpty()) {
+            BipartiteVertex u = sourceQueue.dequeue();
+            if (u.isF == BipartiteVertex.V_F) {
+                Int2ObjectOpenHashMap<BipartiteEdge> adj = f2B.get(u.v);
+                if (adj != null)
+                    expansion.expand(adj, sourceVisitedB, sourceQueue, BipartiteVertex.V_B, index, epoch, componentB, label);
+            } else {
+                Int2ObjectOpenHashMap<BipartiteEdge> adj = b2F.get(u.v);
+                if (adj != null)
+                    expansion.expand(adj, sourceVisitedF, sourceQueue, BipartiteVertex.V_F, index, epoch, componentF, label);
+            }
+        }
+        return label;
+    }
+
+    // the number of components of the forward and the backward buffers that are merged with another one at the snapshot index,
+    // i.e., the bipartite graph restricted to the index has this many vertices more than components, without counting isolated vertices
+    // requires setMergeCounting, the count is maintained as edges are inserted, and the windows of a chunk move the index forward,
+    // such that only the components of the B vertices whose edges change between two indexes are counted again
+    int numOfMerges(int index) {
+        if (trackedIndex == EMPTY_ROOT || index < trackedIndex) {
+            numOfMergesAtTrackedIndex = countMerges(index);
+            trackedIndex = index;
+        }
+        for (; trackedIndex < index; trackedIndex++)
+            recountChangedComponents(trackedIndex);
+        return numOfMergesAtTrackedIndex;
+    }
+
+    // every bipartite edge at the index is a union of the sets of its vertices, in time linear in the size of the bridging view
+    private int countMerges(int index) {
+        for (int i = 0, num = fIndexes.size(); i < num; i++)
+            addToMergeSets(i << 1);
+        for (int i = 0, num = bIndexes.size(); i < num; i++)
+            addToMergeSets(i << 1 | 1);
+        int ret = 0;
+        for (Int2ObjectOpenHashMap<BipartiteEdge> adj : f2B.values())
+            for (BipartiteEdge bipartiteEdge : adj.values())
+                if (bipartiteEdge.intervals.containsKey(index) && union(bipartiteEdge.fIndex << 1, bipartiteEdge.bIndex << 1 | 1))
+                    ret++;
+        return ret;
+    }
+
+    // moves the merges from the index to the next one, an edge that differs between the two indexes is incident to a B vertex of changedAt[index],
+    // such that only the sets at index of those vertices and of the other vertices of those edges change;
+    // a component at index + 1 of a vertex of those sets contains one of those vertices, and is found by a BFS at index + 1 that replaces the sets,
+    // in time linear in the size of the changed components, which is the size of the bridging view if a giant component changes between windows
+    private void recountChangedComponents(int index) {
+        IntArrayList changed = changedAt[index];
+        if (changed == null || changed.isEmpty())
+            return;
+        int epoch = nextEpoch();
+        recounted.clear();
+        recountedVertices.clear();
+        for (int i = 0, num = changed.size(); i < num; i++) {
+            int vb = changed.getInt(i), bIndex = bIndexes.get(vb);
+            if (targetVisitedB[bIndex] == epoch) // a vertex is added once per insertion of one of its edges
+                continue;
+            targetVisitedB[bIndex] = epoch;
+            recounted.add(bIndex << 1 | 1);
+            recountedVertices.add(vb);
+            for (BipartiteEdge bipartiteEdge : b2F.get(vb).values())
+                if (bipartiteEdge.intervals.containsKey(index) != bipartiteEdge.intervals.containsKey(index + 1)) {
+                    recounted.add(bipartiteEdge.fIndex << 1);
+                    recountedVertices.add(bipartiteEdge.vf);
+                }
+        }
+        for (int i = 0, num = recounted.size(); i < num; i++) {
+            int root = findMergeSet(recounted.getInt(i));
+            if (mergeMarks[root] != epoch) {
+                mergeMarks[root] = epoch;
+                numOfMergesAtTrackedIndex -= mergeSize[root] - 1;
+            }
+        }
+
+        epoch = nextEpoch();
+        for (int i = 0, num = recounted.size(); i < num; i++) {
+            int id = recounted.getInt(i);
+            boolean isF = (id & 1) == 0;
+            int[] visited = isF ? sourceVisitedF : sourceVisitedB;
+            if (visited[id >>> 1] == epoch)
+                continue;
+            visited[id >>> 1] = epoch;
+            exploredF.clear();
+            exploredB.clear();
+            sourceQueue.clear();
+            sourceQueue.enqueue(recountedVertices.getInt(i), isF ? BipartiteVertex.V_F : BipartiteVertex.V_B);
+            int size = explore(index + 1, epoch, exploredF, exploredB);
+            for (int j = 0, numF = exploredF.size(); j < numF; j++)
+                mergeParent[fIndexes.get(exploredF.getInt(j)) << 1] = id;
+            for (int j = 0, numB = exploredB.size(); j < numB; j++)
+                mergeParent[bIndexes.get(exploredB.getInt(j)) << 1 | 1] = id;
+            mergeSize[id] = size;
+            numOfMergesAtTrackedIndex += size - 1;
+        }
+    }
+
+    private void addToMergeSets(int id) {
+        if (changedAt == null)
+            return;
+        if (id >= mergeParent.length) {
+            int length = Math.max(id + 2, mergeParent.length << 1);
+            mergeParent = Arrays.copyOf(mergeParent, length);
+            mergeSize = Arrays.copyOf(mergeSize, length);
+            mergeMarks = Arrays.copyOf(mergeMarks, length);
+        }
+        mergeParent[id] = id;
+        mergeSize[id] = 1;
+    }
+
+    private int findMergeSet(int id) {
+        while (mergeParent[id] != id) {
+            mergeParent[id] = mergeParent[mergeParent[id]]; // path halving
+            id = mergeParent[id];
+        }
+        return id;
+    }
+
+    // returns true if the sets of u and v were different
+    private boolean union(int u, int v) {
+        int ru = findMergeSet(u), rv = findMergeSet(v);
+        if (ru == rv)
+            return false;
+        link(ru, rv);
+        return true;
+    }
+
+    // the set of the root ru joins the one of the root rv
+    private void link(int ru, int rv) {
+        mergeParent[ru] = rv;
+        mergeSize[rv] += mergeSize[ru];
+    }
+
+    // collects the roots of the component of the bipartite graph at the snapshot index that contains rootInF or rootInB, which can be EMPTY_ROOT
+    void collectComponent(int rootInF, int rootInB, int index, IntArrayList rootsInF, IntArrayList rootsInB) {
+        final int epoch = nextEpoch();
+        sourceQueue.clear();
+        if (rootInF != EMPTY_ROOT) {
+            sourceQueue.enqueue(rootInF, BipartiteVertex.V_F);
+            int i = fIndexes.get(rootInF);
+            if (i != EMPTY_ROOT)
+                sourceVisitedF[i] = epoch;
+        }
+        if (rootInB != EMPTY_ROOT) {
+            sourceQueue.enqueue(rootInB, BipartiteVertex.V_B);
+            int i = bIndexes.get(rootInB);
+            if (i != EMPTY_ROOT)
+                sourceVisitedB[i] = epoch;
+        }
+        explore(index, epoch, rootsInF, rootsInB);
+    }
+
+    // visits every vertex reachable from the vertices in sourceQueue, which are marked as visited, and returns the number of visited vertices
+    private int explore(int index, int epoch, IntArrayList rootsInF, IntArrayList rootsInB) {
+        int numOfVertices = 0;
+        while (!sourceQueue.isEmpty()) {
+            BipartiteVertex u = sourceQueue.dequeue();
+            numOfVertices++;
+            if (u.isF == BipartiteVertex.V_F) {
+                if (rootsInF != null)
+                    rootsInF.add(u.v);
+                Int2ObjectOpenHashMap<BipartiteEdge> adj = f2B.get(u.v);
+                if (adj != null)
+                    expansion.expand(adj, sourceVisitedB, sourceQueue, BipartiteVertex.V_B, index, epoch);
+            } else {
+                if (rootsInB != null)
+                    rootsInB.add(u.v);
+                Int2ObjectOpenHashMap<BipartiteEdge> adj = b2F.get(u.v);
+                if (adj != null)
+                    expansion.expand(adj, sourceVisitedF, sourceQueue, BipartiteVertex.V_F, index, epoch);
+            }
+        }
+        return numOfVertices;
+    }
+
+    // visits the neighbours of a vertex whose bipartite edges include the snapshot index
+    // the adjacency list is iterated by values().forEach with this reusable consumer, which does not allocate an iterator
+    private static class Expansion implements Consumer<BipartiteEdge> {
+        private int[] visited;
+        private BipartiteVertexQueue queue;
+        private int isF, index, epoch;
+        private int[] components; // null if the visited vertices are not labelled
+        private int label;
+
+        void expand(Int2ObjectOpenHashMap<BipartiteEdge> adj, int[] visited, BipartiteVertexQueue queue, int isF, int index, int epoch) {
+            expand(adj, visited, queue, isF, index, epoch, null, EMPTY_ROOT);
+        }
+
+        void expand(Int2ObjectOpenHashMap<BipartiteEdge> adj, int[] visited, BipartiteVertexQueue queue, int isF, int index, int epoch, int[] components, int label) {
+            this.visited = visited;
+            this.queue = queue;
+            this.isF = isF; // the side of the neighbours
+            this.index = index;
+            this.epoch = epoch;
+            this.components = components;
+            this.label = label;
+            adj.values().forEach(this);
+        }
+
+        @Override
+        public void accept(BipartiteEdge bipartiteEdge) {
+            int i = isF == BipartiteVertex.V_F ? bipartiteEdge.fIndex : bipartiteEdge.bIndex;
+            if (visited[i] != epoch && bipartiteEdge.intervals.containsKey(index)) { // not visited, and interval includes index
+                visited[i] = epoch;
+                if (components != null)
+                    components[i] = label;
+                queue.enqueue(isF == BipartiteVertex.V_F ? bipartiteEdge.vf : bipartiteEdge.vb, isF);
+            }
+        }
+    }
+
     private static class BipartiteEdge {
         private final IntervalStore intervals;
 
         private int vb;
         private int vf;
+        private int bIndex, fIndex; // dense indexes of vb and vf
 
-        public BipartiteEdge(int vb, int vf, int size) {
+        public BipartiteEdge(int vb, int vf, int bIndex, int fIndex, int size) {
             this.vb = vb;
             this.vf = vf;
-            intervals = new IntervalStore(size);
+            this.bIndex = bIndex;
+            this.fIndex = fIndex;
+            intervals = IntervalStore.create(size);
         }
     }
 
+    // a queue that is emptied before each search, such that it only grows and never wraps around
     private static class BipartiteVertexQueue {
-        private final IntArrayFIFOQueue vQueue;
-        private final IntArrayFIFOQueue isVFQueue;
+        private int[] vQueue;
+        private int[] isVFQueue;
+        private int head, tail;
 
         private final BipartiteVertex ret;
 
         public BipartiteVertexQueue() {
-            vQueue = new IntArrayFIFOQueue();
-            isVFQueue = new IntArrayFIFOQueue();
+            vQueue = new int[16];
+            isVFQueue = new int[16];
             this.ret = new BipartiteVertex();
         }
 
+        void ensureCapacity(int capacity) {
+            if (capacity > vQueue.length) {
+                vQueue = Arrays.copyOf(vQueue, Math.max(capacity, vQueue.length << 1));
+                isVFQueue = Arrays.copyOf(isVFQueue, vQueue.length);
+            }
+        }
+
         public void enqueue(int v, int isF) {
-            vQueue.enqueue(v);
-            isVFQueue.enqueue(isF);
+            if (tail == vQueue.length)
+                ensureCapacity(tail + 1);
+            vQueue[tail] = v;
+            isVFQueue[tail++] = isF;
         }
 
         public BipartiteVertex dequeue() {
-            ret.v = vQueue.dequeueInt();
-            ret.isF = isVFQueue.dequeueInt();
+            ret.v = vQueue[head];
+            ret.isF = isVFQueue[head++];
             return ret;
         }
 
         public boolean isEmpty() {
-            return vQueue.isEmpty();
+            return head == tail;
+        }
+
+        public void clear() {
+            head = 0;
+            tail = 0;
         }
     }
 
@@ -0,0 +1,149 @@
+package ca.uw.dsg.swc.bic;
+
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// the state that BIC needs to continue a stream, i.e., the window position, the workload, the labelled union-find of the backward buffer,
+// and the edges of the current chunk, from which the forward buffer and the bridging view are rebuilt; the edges of the previous chunk
+// are only kept in the edge-deletion mode, where the backward buffer may be rebuilt
+// a checkpoint is a copy taken on the ingest thread, such that it can be written by another thread while edges are inserted
+public class Checkpoint {
+    private static final int MAGIC = 0x42494343; // "BICC"
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    static final int DENSE_VERTEX_IDS = 1, OFF_HEAP_BACKWARD_BUFFERS = 1 << 1, BATCH_QUERY_EVALUATION = 1 << 2, EDGE_DELETIONS = 1 << 3, COMPONENT_AGGREGATES = 1 << 4;
+
+    final long range, slide;
+    final int modes;
+    final long startOfCurrentWindow;
+    final int windowIndexInChunk;
+    final int logPosition; // the number of records of the segment of the current chunk in the edge log, -1 if the edges are not logged
+    final List<IntIntPair> workload; // a slot of an unregistered query is null
+    final int[][] backwardBufferColumns;
+    final Chunk previousChunk; // null if the backward buffer does not retain its chunk
+    final Chunk currentChunk;
+
+    Checkpoint(long range, long slide, int modes, long startOfCurrentWindow, int windowIndexInChunk, int logPosition, List<IntIntPair> workload,
+               int[][] backwardBufferColumns, Chunk previousChunk, Chunk currentChunk) {
+        this.range = range;
+        this.slide = slide;
+        this.modes = modes;
+        this.startOfCurrentWindow = startOfCurrentWindow;
+        this.windowIndexInChunk = windowIndexInChunk;
+        this.logPosition = logPosition;
+        this.workload = workload;
+        this.backwardBufferColumns = backwardBufferColumns;
+        this.previousChunk = previousChunk;
+        this.currentChunk = currentChunk;
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(range);
+        out.writeLong(slide);
+        out.writeInt(modes);
+        out.writeLong(startOfCurrentWindow);
+        out.writeInt(windowIndexInChunk);
+        out.writeInt(logPosition);
+
+        out.writeInt(workload.size());
+        for (IntIntPair query : workload) {
+            out.writeBoolean(query != null);
+            if (query != null) {
+                out.writeInt(query.firstInt());
+                out.writeInt(query.secondInt());
+            }
+        }
+
+        out.writeInt(backwardBufferColumns.length);
+        out.writeInt(backwardBufferColumns[0].length);
+        for (int[] column : backwardBufferColumns)
+            writeInts(out, column, column.length);
+
+        out.writeBoolean(previousChunk != null);
+        if (previousChunk != null)
+            previousChunk.write(out);
+        currentChunk.write(out);
+        out.flush();
+    }
+
+    public static Checkpoint readFrom(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE));
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a checkpoint of BidirectionalIncrementalConnectivity");
+        int version = in.readInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported checkpoint version " + version);
+        long range = in.readLong(), slide = in.readLong();
+        int modes = in.readInt();
+        long startOfCurrentWindow = in.readLong();
+        int windowIndexInChunk = in.readInt(), logPosition = in.readInt();
+
+        int numOfQueries = in.readInt();
+        List<IntIntPair> workload = new ArrayList<>(numOfQueries);
+        for (int i = 0; i < numOfQueries; i++)
+            workload.add(in.readBoolean() ? IntIntPair.of(in.readInt(), in.readInt()) : null);
+
+        int[][] backwardBufferColumns = new int[in.readInt()][in.readInt()];
+        for (int[] column : backwardBufferColumns)
+            readInts(in, column, column.length);
+
+        long lengthOfPane = BidirectionalIncrementalConnectivity.gcd(range, slide);
+        Chunk previousChunk = in.readBoolean() ? readChunk(in, (int) (range / lengthOfPane), lengthOfPane) : null;
+        Chunk currentChunk = readChunk(in, (int) (range / lengthOfPane), lengthOfPane);
+        return new Checkpoint(range, slide, modes, startOfCurrentWindow, windowIndexInChunk, logPosition, workload, backwardBufferColumns, previousChunk, currentChunk);
+    }
+
+    // the chunks of a checkpoint are not pooled, the restored instance pools the chunks it creates afterwards
+    private static Chunk readChunk(DataInputStream in, int chunkSize, long lengthOfPane) throws IOException {
+        Chunk chunk = new Chunk(chunkSize, lengthOfPane);
+        chunk.read(in);
+        return chunk;
+    }
+
+    // the columns are converted in blocks through a byte buffer, instead of one call per value
+    static void writeInts(DataOutputStream out, int[] values, int len) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(Integer.BYTES, (long) len * Integer.BYTES)));
+        for (int from = 0; from < len; ) {
+            int num = Math.min(len - from, buffer.capacity() / Integer.BYTES);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, from, num);
+            out.write(buffer.array(), 0, num * Integer.BYTES);
+            from += num;
+        }
+    }
+
+    static void readInts(DataInputStream in, int[] values, int len) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(Integer.BYTES, (long) len * Integer.BYTES)));
+        for (int from = 0; from < len; ) {
+            int num = Math.min(len - from, buffer.capacity() / Integer.BYTES);
+            in.readFully(buffer.array(), 0, num * Integer.BYTES);
+            buffer.clear();
+            buffer.asIntBuffer().get(values, from, num);
+            from += num;
+        }
+    }
+
+    static void writeLongs(DataOutputStream out, long[] values, int len) throws IOException {
+        for (int i = 0; i < len; i++)
+            out.writeLong(values[i]);
+    }
+
+    static void readLongs(DataInputStream in, long[] values, int len) throws IOException {
+        for (int i = 0; i < len; i++)
+            values[i] = in.readLong();
+    }
+}
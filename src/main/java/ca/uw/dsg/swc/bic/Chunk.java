@@ -1,55 +1,229 @@
 package ca.uw.dsg.swc.bic;
 
+import ca.uw.dsg.swc.MemoryAccountable;
 import ca.uw.dsg.swc.StreamingEdge;
 
-import java.util.ArrayList;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// the edges of a chunk are stored column by column, i.e., 8 bytes per edge, or 16 bytes if timestamps are kept
+// the edges of element i are at positions [getStartOfElement(i), getEndOfElement(i)) of the columns
+public class Chunk implements MemoryAccountable {
+    private static final int INITIAL_CAPACITY = 1 << 10;
 
-public class Chunk {
     public int getChunkSize() {
         return chunkSize;
     }
 
-    private final int chunkSize; // r/s
+    private final int chunkSize; // the number of panes in a range, i.e., r/s if the range is a multiple of the slide
     private int currentIndex; // used for inserting edges
-    private final long intervalOfEachElement; // the slide parameter
+    private final long intervalOfEachElement; // the length of a pane, i.e., the slide parameter if the range is a multiple of the slide
+    private long startTime;
     private long endOfCurrentElement;
+    private int numOfEdges;
+
+    private int[] sources, targets;
+    private long[] timeStamps; // null if timestamps are not kept
+    private final int[] offsets; // offsets[i] is the position of the first edge of element i, valid for i <= currentIndex
+    private long[] removed; // a bitset of the deleted positions, null if no edge is deleted
 
-    // the element in chunk are retried by using the remove method
-    // such that chunk can be reused
-    private final ArrayList<ArrayList<StreamingEdge>> data;
-    private ArrayList<StreamingEdge> currentElement;
+    private final ChunkPool pool; // the pool the chunk is returned to once its backward buffer is computed, null if not pooled
 
     public Chunk(int chunkSize, long intervalOfEachElement) {
+        this(chunkSize, intervalOfEachElement, false, null);
+    }
+
+    Chunk(int chunkSize, long intervalOfEachElement, boolean keepTimeStamps, ChunkPool pool) {
+        this(chunkSize, intervalOfEachElement, INITIAL_CAPACITY, keepTimeStamps, pool);
+    }
+
+    // a chunk of a pane store is created without columns, see PaneStore.View
+    Chunk(int chunkSize, long intervalOfEachElement, int capacity, boolean keepTimeStamps, ChunkPool pool) {
         this.chunkSize = chunkSize;
         this.intervalOfEachElement = intervalOfEachElement;
+        this.pool = pool;
 
-        this.data = new ArrayList<>(chunkSize);
-        for (int i = 0; i < chunkSize; i++)
-            data.add(new ArrayList<>());
+        this.sources = new int[capacity];
+        this.targets = new int[capacity];
+        this.timeStamps = keepTimeStamps ? new long[capacity] : null;
+        this.offsets = new int[chunkSize];
         currentIndex = 0;
-        currentElement = data.get(currentIndex);
     }
 
     public boolean insert(StreamingEdge StreamingEdge) {
-        if (StreamingEdge.timeStamp > endOfCurrentElement) { // the current element in the chunk is full, and add the streaming edge into the next element in the chunk
-            // assuming the timestamp is in the next element
-            // the case that there are gaps that are larger than the interval of each element is not considered
-            if (++currentIndex < chunkSize) { // if the current chunk is not full
-                currentElement = data.get(currentIndex); // get the next element
-                endOfCurrentElement += intervalOfEachElement; // update the endTimeStamp of the current element
+        return insert(StreamingEdge.source, StreamingEdge.target, StreamingEdge.timeStamp);
+    }
+
+    // the edge is written into the columns without an edge object, e.g., from the records of an edge log
+    boolean insert(int source, int target, long timeStamp) {
+        if (timeStamp > endOfCurrentElement) { // the current element in the chunk is full, and add the streaming edge into the element covering its timestamp
+            // the pane may be shorter than the slide, so an edge can skip panes that received no edges
+            long index = (timeStamp - startTime) / intervalOfEachElement;
+            if (index < chunkSize) { // if the current chunk is not full
+                while (currentIndex < index) // the skipped elements are empty
+                    offsets[++currentIndex] = numOfEdges;
+                endOfCurrentElement = startTime + (index + 1) * intervalOfEachElement - 1; // update the endTimeStamp of the current element
             } else   // the current chunk is full
                 return false;
         }
         // adding streaming edge into the current element in the chunk
-        currentElement.add(StreamingEdge);
+        append(source, target, timeStamp);
+        numOfEdges++;
         return true;
     }
 
+    // write the edge at position numOfEdges of the columns
+    void append(int source, int target, long timeStamp) {
+        if (numOfEdges == sources.length)
+            grow();
+        sources[numOfEdges] = source;
+        targets[numOfEdges] = target;
+        if (timeStamps != null)
+            timeStamps[numOfEdges] = timeStamp;
+    }
+
+    private void grow() {
+        int newCapacity = Math.max(INITIAL_CAPACITY, sources.length << 1); // a copy of a chunk has the capacity of its edges
+        sources = Arrays.copyOf(sources, newCapacity);
+        targets = Arrays.copyOf(targets, newCapacity);
+        if (timeStamps != null)
+            timeStamps = Arrays.copyOf(timeStamps, newCapacity);
+        if (removed != null)
+            removed = Arrays.copyOf(removed, (newCapacity + Long.SIZE - 1) >>> 6);
+    }
+
+    public int getCurrentIndex() {
+        return currentIndex;
+    }
+
+    public int getNumOfEdges() {
+        return numOfEdges;
+    }
+
+    public int getStartOfElement(int i) {
+        return i <= currentIndex ? offsets[i] : numOfEdges;
+    }
+
+    public int getEndOfElement(int i) {
+        return i < currentIndex ? offsets[i + 1] : numOfEdges;
+    }
+
+    // the element whose edges include the position, the last one of the elements that start at or before it, as empty elements share their start
+    int getElementOf(int position) {
+        int low = 0, high = currentIndex;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= position)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        return low;
+    }
+
+    public int getNumOfEdgesInElement(int i) {
+        return getEndOfElement(i) - getStartOfElement(i);
+    }
+
+    public int getSource(int position) {
+        return sources[position];
+    }
+
+    public int getTarget(int position) {
+        return targets[position];
+    }
+
+    public long getTimeStamp(int position) {
+        return timeStamps[position];
+    }
+
+    // the edge at the position is deleted, it is skipped when the buffers of the chunk are built, and the columns are not compacted
+    // the bitset also grows with the positions, as the columns of a chunk of a pane store are not grown by the chunk
+    void remove(int position) {
+        int word = position >>> 6;
+        if (removed == null)
+            removed = new long[Math.max(word + 1, (sources.length + Long.SIZE - 1) >>> 6)];
+        else if (word >= removed.length)
+            removed = Arrays.copyOf(removed, Math.max(word + 1, removed.length << 1));
+        removed[word] |= 1L << position;
+    }
+
+    boolean isRemoved(int position) {
+        return removed != null && position >>> 6 < removed.length && (removed[position >>> 6] & (1L << position)) != 0;
+    }
+
+    @Override
+    public long estimatedMemoryConsumption() {
+        return (long) sources.length * (timeStamps == null ? 2 * Integer.BYTES : 2 * Integer.BYTES + Long.BYTES) + (long) offsets.length * Integer.BYTES;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
     public void setStartTime(long startTime) {
+        this.startTime = startTime;
         endOfCurrentElement = startTime + intervalOfEachElement - 1;
     }
 
-    public ArrayList<ArrayList<StreamingEdge>> getData() {
-        return data;
+    // clear the chunk for reuse, the columns keep their capacity
+    void reset(long startTime) {
+        currentIndex = 0;
+        numOfEdges = 0;
+        removed = null;
+        setStartTime(startTime);
+    }
+
+    // a copy of the edges that is not pooled, such that it can be written by another thread while the chunk is being filled
+    Chunk copy() {
+        Chunk ret = new Chunk(chunkSize, intervalOfEachElement, false, null);
+        ret.sources = Arrays.copyOf(sources, numOfEdges);
+        ret.targets = Arrays.copyOf(targets, numOfEdges);
+        ret.removed = removed == null ? null : Arrays.copyOf(removed, (numOfEdges + Long.SIZE - 1) >>> 6);
+        System.arraycopy(offsets, 0, ret.offsets, 0, currentIndex + 1);
+        ret.currentIndex = currentIndex;
+        ret.numOfEdges = numOfEdges;
+        ret.setStartTime(startTime);
+        ret.endOfCurrentElement = endOfCurrentElement;
+        return ret;
+    }
+
+    // the timestamps are not written, as they are not kept by the chunks of BIC
+    void write(DataOutputStream out) throws IOException {
+        out.writeLong(startTime);
+        out.writeLong(endOfCurrentElement);
+        out.writeInt(currentIndex);
+        out.writeInt(numOfEdges);
+        Checkpoint.writeInts(out, offsets, currentIndex + 1);
+        Checkpoint.writeInts(out, sources, numOfEdges);
+        Checkpoint.writeInts(out, targets, numOfEdges);
+        out.writeBoolean(removed != null);
+        if (removed != null)
+            Checkpoint.writeLongs(out, removed, (numOfEdges + Long.SIZE - 1) >>> 6);
+    }
+
+    // the chunk is reset and filled with the edges written by write(out)
+    void read(DataInputStream in) throws IOException {
+        reset(in.readLong());
+        endOfCurrentElement = in.readLong();
+        currentIndex = in.readInt();
+        numOfEdges = in.readInt();
+        while (sources.length < numOfEdges)
+            grow();
+        Checkpoint.readInts(in, offsets, currentIndex + 1);
+        Checkpoint.readInts(in, sources, numOfEdges);
+        Checkpoint.readInts(in, targets, numOfEdges);
+        if (in.readBoolean()) {
+            removed = new long[(sources.length + Long.SIZE - 1) >>> 6];
+            Checkpoint.readLongs(in, removed, (numOfEdges + Long.SIZE - 1) >>> 6);
+        }
+    }
+
+    // the chunk is not read anymore, such that it can be reused for a following chunk
+    void release() {
+        if (pool != null)
+            pool.release(this);
     }
 }
@@ -0,0 +1,34 @@
+package ca.uw.dsg.swc.bic;
+
+import java.util.ArrayDeque;
+
+// a small pool of chunks, such that the columns of a chunk are reused once its backward buffer has been computed
+// chunks can be released by the background thread of the asynchronous backward computation
+class ChunkPool {
+    private static final int CAPACITY = 2; // the current chunk and the one whose backward buffer is being computed
+
+    private final int chunkSize;
+    private final long intervalOfEachElement;
+    private final boolean keepTimeStamps;
+    private final ArrayDeque<Chunk> chunks;
+
+    ChunkPool(int chunkSize, long intervalOfEachElement, boolean keepTimeStamps) {
+        this.chunkSize = chunkSize;
+        this.intervalOfEachElement = intervalOfEachElement;
+        this.keepTimeStamps = keepTimeStamps;
+        this.chunks = new ArrayDeque<>(CAPACITY);
+    }
+
+    synchronized Chunk acquire(long startTime) {
+        Chunk chunk = chunks.poll();
+        if (chunk == null)
+            chunk = new Chunk(chunkSize, intervalOfEachElement, keepTimeStamps, this);
+        chunk.reset(startTime);
+        return chunk;
+    }
+
+    synchronized void release(Chunk chunk) {
+        if (chunks.size() < CAPACITY)
+            chunks.push(chunk);
+    }
+}
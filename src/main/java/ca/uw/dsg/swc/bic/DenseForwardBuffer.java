@@ -0,0 +1,218 @@
+package ca.uw.dsg.swc.bic;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity.EMPTY_ROOT;
+import static ca.uw.dsg.swc.bic.VertexDictionary.ABSENT;
+
+// the forward buffer over dense vertex ids, where the union-find is kept in int arrays indexed by the id
+// the buffer is reused for every chunk, and reset by clearing only the vertices touched in the previous chunk
+// the dictionary would otherwise keep every vertex ever seen, so that it is compacted at a chunk boundary once fewer than half of its ids
+// were touched in the previous chunk, keeping only those; a compaction is paid for by the dropped vertices, each added once,
+// and after a chunk boundary, the dictionary holds at most COMPACTION_THRESHOLD or twice the vertices of the previous chunk
+// the roots reported to the bridging view are dense ids, which are only compared with other roots of the same forward buffer
+class DenseForwardBuffer extends ForwardBuffer {
+    static final int COMPACTION_THRESHOLD = 1 << 12; // a smaller dictionary is never compacted
+
+    private final VertexDictionary dictionary;
+
+    private int[] parent; // ABSENT if the vertex is not in the current chunk
+    private int[] size;
+    private final IntArrayList touched; // the vertices inserted in the current chunk
+
+    private int[] sourceIds, targetIds; // dense ids of the workload pairs, looked up lazily
+
+    DenseForwardBuffer(List<IntIntPair> workload, VertexDictionary dictionary) {
+        super(workload, false);
+        this.dictionary = dictionary;
+        int capacity = Math.max(16, dictionary.size());
+        this.parent = new int[capacity];
+        Arrays.fill(parent, ABSENT);
+        this.size = new int[capacity];
+        this.touched = new IntArrayList();
+        this.sourceIds = new int[sources.length];
+        this.targetIds = new int[targets.length];
+        Arrays.fill(sourceIds, ABSENT);
+        Arrays.fill(targetIds, ABSENT);
+    }
+
+    // the dictionary is shared by the chunks, and is accounted to the forward buffer
+    @Override
+    public long estimatedMemoryConsumption() {
+        return dictionary.estimatedMemoryConsumption()
+                + (long) parent.length * 2 * Integer.BYTES
+                + (long) touched.elements().length * Integer.BYTES
+                + estimatedWorkloadMemoryConsumption();
+    }
+
+    void reset() {
+        int[] elements = touched.elements();
+        int numOfTouched = touched.size();
+        for (int i = 0; i < numOfTouched; i++)
+            parent[elements[i]] = ABSENT;
+        if (dictionary.size() > COMPACTION_THRESHOLD && dictionary.size() > numOfTouched << 1)
+            compact(elements, numOfTouched);
+        touched.clear();
+    }
+
+    // the vertices of the previous chunk are likely to recur, such that they keep an id, renumbered in the order they were touched
+    private void compact(int[] ids, int num) {
+        dictionary.compact(ids, num);
+        int capacity = Math.max(16, num << 1);
+        if (parent.length > capacity << 1) {
+            parent = new int[capacity];
+            Arrays.fill(parent, ABSENT);
+            size = new int[capacity];
+        }
+        touched.trim(capacity);
+        Arrays.fill(sourceIds, ABSENT);
+        Arrays.fill(targetIds, ABSENT);
+    }
+
+    private int add(int v) {
+        int id = dictionary.getOrAdd(v);
+        if (id >= parent.length) {
+            int oldCapacity = parent.length, newCapacity = Math.max(id + 1, oldCapacity << 1);
+            parent = Arrays.copyOf(parent, newCapacity);
+            Arrays.fill(parent, oldCapacity, newCapacity, ABSENT);
+            size = Arrays.copyOf(size, newCapacity);
+        }
+        if (parent[id] == ABSENT) {
+            parent[id] = id;
+            size[id] = 1;
+            touched.add(id);
+        }
+        return id;
+    }
+
+    // the root of the vertex in the current chunk, EMPTY_ROOT if the vertex is not in the current chunk
+    private int rootOf(int id) {
+        if (id == ABSENT || id >= parent.length || parent[id] == ABSENT)
+            return EMPTY_ROOT;
+        return find(id);
+    }
+
+    private int find(int id) {
+        int root = id;
+        while (parent[root] != root)
+            root = parent[root];
+        while (parent[id] != root) { // path compression
+            int next = parent[id];
+            parent[id] = root;
+            id = next;
+        }
+        return root;
+    }
+
+    private int union(int sourceRoot, int targetRoot) {
+        if (size[sourceRoot] < size[targetRoot]) { // source as child of target
+            parent[sourceRoot] = targetRoot;
+            size[targetRoot] += size[sourceRoot];
+            return targetRoot;
+        } else {  // target as child of source
+            parent[targetRoot] = sourceRoot;
+            size[sourceRoot] += size[targetRoot];
+            return sourceRoot;
+        }
+    }
+
+    @Override
+    public int insertEdge(int source, int target) {
+        int rootOfSource = find(add(source));
+        int rootOfTarget = find(add(target));
+        return rootOfSource != rootOfTarget ? union(rootOfSource, rootOfTarget) : rootOfSource;
+    }
+
+    @Override
+    RootAndChild insertEdgeAndGetRoots(int source, int target) {
+        int numOfVertices = touched.size();
+        int rootOfSource = find(add(source));
+        rootAndChildInF.isSourceNew = touched.size() > numOfVertices;
+        int rootOfTarget = find(add(target));
+        rootAndChildInF.isTargetNew = touched.size() > numOfVertices + (rootAndChildInF.isSourceNew ? 1 : 0);
+        if (rootOfSource != rootOfTarget) {
+            int root = union(rootOfSource, rootOfTarget);
+            rootAndChildInF.root = root;
+            rootAndChildInF.child = root == rootOfSource ? rootOfTarget : rootOfSource;
+        } else {
+            rootAndChildInF.root = rootOfSource;
+            rootAndChildInF.child = EMPTY_ROOT;
+        }
+        return rootAndChildInF;
+    }
+
+    @Override
+    public boolean intraConnected(int workLoadIndex) {
+        int rootOfSource = rootOf(sourceId(workLoadIndex));
+        return rootOfSource != EMPTY_ROOT && rootOfSource == rootOf(targetId(workLoadIndex));
+    }
+
+    @Override
+    void registerQuery(int slot, int source, int target) {
+        if (slot >= sources.length) {
+            int newLen = Math.max(slot + 1, sources.length << 1);
+            sources = Arrays.copyOf(sources, newLen);
+            targets = Arrays.copyOf(targets, newLen);
+        }
+        if (slot >= sourceIds.length) {
+            int oldLen = sourceIds.length, newLen = Math.max(slot + 1, oldLen << 1);
+            sourceIds = Arrays.copyOf(sourceIds, newLen);
+            targetIds = Arrays.copyOf(targetIds, newLen);
+            Arrays.fill(sourceIds, oldLen, newLen, ABSENT);
+            Arrays.fill(targetIds, oldLen, newLen, ABSENT);
+        }
+        sources[slot] = source;
+        targets[slot] = target;
+        sourceIds[slot] = ABSENT;
+        targetIds[slot] = ABSENT;
+    }
+
+    @Override
+    void findRoots(int source, int target, RootPair rootsInF) {
+        rootsInF.sourceRoot = rootOf(dictionary.get(source));
+        rootsInF.targetRoot = rootOf(dictionary.get(target));
+    }
+
+    @Override
+    int findRoot(int v) {
+        return rootOf(dictionary.get(v));
+    }
+
+    @Override
+    int sizeOfRoot(int root) {
+        return size[root];
+    }
+
+    @Override
+    void findSourceRootForIntraConnected(int workloadIndex, RootPair rootsInF) {
+        int root = rootOf(sourceId(workloadIndex));
+        if (root != EMPTY_ROOT)
+            rootsInF.sourceRoot = root;
+    }
+
+    @Override
+    void findTargetRootForIntraConnected(int workloadIndex, RootPair rootsInF) {
+        int root = rootOf(targetId(workloadIndex));
+        if (root != EMPTY_ROOT)
+            rootsInF.targetRoot = root;
+    }
+
+    // the id of a vertex only changes by a compaction, such that it is cached across chunks until then
+    private int sourceId(int workloadIndex) {
+        int id = sourceIds[workloadIndex];
+        if (id == ABSENT)
+            id = sourceIds[workloadIndex] = dictionary.get(sources[workloadIndex]);
+        return id;
+    }
+
+    private int targetId(int workloadIndex) {
+        int id = targetIds[workloadIndex];
+        if (id == ABSENT)
+            id = targetIds[workloadIndex] = dictionary.get(targets[workloadIndex]);
+        return id;
+    }
+}
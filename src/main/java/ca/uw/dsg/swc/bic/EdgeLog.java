@@ -0,0 +1,162 @@
+package ca.uw.dsg.swc.bic;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// an append-only log of the edges ingested by BIC, which is written before an edge is applied, such that the edges after a checkpoint are replayed on restart
+// the log is segmented at the chunk boundaries of BIC, i.e., one memory-mapped file per chunk named by the start of the chunk,
+// such that the segments before the chunk of a checkpoint are dropped by truncate, and a restore replays the records of the chunk of the checkpoint after
+// its position and of the following chunks, i.e., at most the edges of one chunk if a checkpoint is taken per chunk, instead of the edges of a range
+// a record is counted in the header of its segment after it is written, such that a record torn by a crash of the process is not replayed;
+// the mapped segments are forced to the storage device at the chunk boundaries and by sync, to survive a crash of the operating system
+public class EdgeLog implements Closeable {
+    private static final int MAGIC = 0x4249434C; // "BICL"
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".wal";
+    private static final int HEADER_SIZE = 24; // magic, version, the start of the chunk, the number of records, and padding
+    private static final int NUM_OF_RECORDS = 16; // the position of the number of records in the header
+    private static final int RECORD_SIZE = 20; // source, target, timestamp and flags
+    private static final int INITIAL_NUM_OF_RECORDS = 1 << 10; // the mapping is doubled once it is full
+    private static final int DELETION = 1;
+
+    private final Path directory;
+    private long startOfSegment;
+    private FileChannel channel; // null if no segment is open
+    private MappedByteBuffer segment;
+    private int numOfRecords;
+
+    public EdgeLog(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    // the record is appended to the segment of the chunk starting at startOfChunk, which is opened if the chunk is newer than the current segment,
+    // or continued from its last counted record if it exists, e.g., after a restore
+    void append(long startOfChunk, int source, int target, long timeStamp, boolean isDeletion) {
+        try {
+            if (channel == null || startOfChunk != startOfSegment)
+                open(startOfChunk);
+            if (HEADER_SIZE + (long) (numOfRecords + 1) * RECORD_SIZE > segment.capacity())
+                map(Math.max(INITIAL_NUM_OF_RECORDS, numOfRecords << 1));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        int position = HEADER_SIZE + numOfRecords * RECORD_SIZE;
+        segment.putInt(position, source);
+        segment.putInt(position + Integer.BYTES, target);
+        segment.putLong(position + 2 * Integer.BYTES, timeStamp);
+        segment.putInt(position + 2 * Integer.BYTES + Long.BYTES, isDeletion ? DELETION : 0);
+        segment.putInt(NUM_OF_RECORDS, ++numOfRecords);
+    }
+
+    // the number of records in the segment of the chunk starting at startOfChunk, which is the position of a checkpoint taken in this chunk
+    int getNumOfRecords(long startOfChunk) {
+        return channel != null && startOfChunk == startOfSegment ? numOfRecords : 0;
+    }
+
+    private void open(long startOfChunk) throws IOException {
+        close();
+        Path path = pathOf(startOfChunk);
+        boolean exists = Files.exists(path) && Files.size(path) >= HEADER_SIZE; // a segment without a header has no records
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        startOfSegment = startOfChunk;
+        numOfRecords = exists ? checkHeader(channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE), path) : 0;
+        map(Math.max(INITIAL_NUM_OF_RECORDS, numOfRecords << 1));
+        if (!exists) {
+            segment.putInt(0, MAGIC);
+            segment.putInt(Integer.BYTES, VERSION);
+            segment.putLong(2 * Integer.BYTES, startOfChunk);
+            segment.putInt(NUM_OF_RECORDS, 0);
+        }
+    }
+
+    // the file is extended by the mapping, and the previous mapping is unmapped once it is collected
+    private void map(int capacityInRecords) throws IOException {
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacityInRecords * RECORD_SIZE);
+    }
+
+    // forces the records of the current segment to the storage device
+    public void sync() {
+        if (segment != null)
+            segment.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null)
+            return;
+        segment.force();
+        channel.close();
+        channel = null;
+        segment = null;
+    }
+
+    // drops the segments before the chunk of the checkpoint, which should be written before, as they are not replayed anymore
+    public void truncate(Checkpoint checkpoint) throws IOException {
+        long startOfChunk = checkpoint.currentChunk.getStartTime();
+        for (long start : listSegments())
+            if (start < startOfChunk)
+                Files.deleteIfExists(pathOf(start));
+    }
+
+    // the records from the position of the segment of the chunk starting at startOfChunk on are applied to the instance in the order they were appended,
+    // the segments are read sequentially from their mappings, and a record is inserted into the columns of the current chunk without an edge object
+    void replay(long startOfChunk, int fromRecord, BidirectionalIncrementalConnectivity bic) throws IOException {
+        close();
+        long[] starts = listSegments();
+        if (fromRecord > 0 && Arrays.binarySearch(starts, startOfChunk) < 0)
+            throw new IOException("The edge log does not contain the segment of the checkpoint");
+        for (long start : starts) {
+            if (start < startOfChunk)
+                continue;
+            Path path = pathOf(start);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() < HEADER_SIZE && start != startOfChunk)
+                    continue;
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int num = checkHeader(mapped, path), from = start == startOfChunk ? fromRecord : 0;
+                if (HEADER_SIZE + (long) num * RECORD_SIZE > mapped.capacity())
+                    throw new IOException("The number of records exceeds the segment: " + path);
+                if (from > num)
+                    throw new IOException("The edge log ends before the position of the checkpoint");
+                for (int position = HEADER_SIZE + from * RECORD_SIZE, end = HEADER_SIZE + num * RECORD_SIZE; position < end; position += RECORD_SIZE)
+                    bic.replay(mapped.getInt(position), mapped.getInt(position + Integer.BYTES), mapped.getLong(position + 2 * Integer.BYTES),
+                            (mapped.getInt(position + 2 * Integer.BYTES + Long.BYTES) & DELETION) != 0);
+            }
+        }
+    }
+
+    private static int checkHeader(MappedByteBuffer mapped, Path path) throws IOException {
+        if (mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC)
+            throw new IOException("Not a segment of an edge log: " + path);
+        if (mapped.getInt(Integer.BYTES) != VERSION)
+            throw new IOException("Unsupported edge log version " + mapped.getInt(Integer.BYTES) + ": " + path);
+        return mapped.getInt(NUM_OF_RECORDS);
+    }
+
+    private Path pathOf(long startOfChunk) {
+        return directory.resolve(startOfChunk + SUFFIX);
+    }
+
+    // the starts of the chunks of the segments in the directory, in ascending order
+    private long[] listSegments() throws IOException {
+        LongArrayList ret = new LongArrayList();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path path : paths) {
+                String name = path.getFileName().toString();
+                ret.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+            }
+        }
+        long[] starts = ret.toLongArray();
+        Arrays.sort(starts);
+        return starts;
+    }
+}
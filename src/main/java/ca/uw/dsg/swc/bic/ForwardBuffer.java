@@ -1,5 +1,6 @@
 package ca.uw.dsg.swc.bic;
 
+import ca.uw.dsg.swc.MemoryAccountable;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntIntPair;
 
@@ -7,15 +8,19 @@ import java.util.*;
 
 import static ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity.EMPTY_ROOT;
 
-public class ForwardBuffer {
+public class ForwardBuffer implements MemoryAccountable {
+    private static final int TREE_NODE = 24;
+
     private final Int2ObjectOpenHashMap<TreeNode> vertex2Node; // map vertex to its node in union-find tree
-    private final RootAndChild rootAndChildInF;
+    final RootAndChild rootAndChildInF;
 
     private final Deque<TreeNode> treeNodeQueue;
 
-    private int[] sources, targets;
+    int[] sources, targets;
     private TreeNode[] sourceNodes, targetNodes;
 
+    private NodeCache<TreeNode> nodeCache; // created by the first ad-hoc query
+
     public ForwardBuffer() {
         vertex2Node = new Int2ObjectOpenHashMap<>();
         rootAndChildInF = new RootAndChild();
@@ -23,17 +28,27 @@ public class ForwardBuffer {
     }
 
     public ForwardBuffer(List<IntIntPair> workload) {
-        vertex2Node = new Int2ObjectOpenHashMap<>();
+        this(workload, true);
+    }
+
+    // subclasses that keep their own union-find do not create the tree nodes
+    ForwardBuffer(List<IntIntPair> workload, boolean withTreeNodes) {
+        vertex2Node = withTreeNodes ? new Int2ObjectOpenHashMap<>() : null;
         rootAndChildInF = new RootAndChild();
-        treeNodeQueue = new ArrayDeque<>(100);
+        treeNodeQueue = withTreeNodes ? new ArrayDeque<>(100) : null;
 
         int len = workload.size();
         sources = new int[len];
         targets = new int[len];
-        sourceNodes = new TreeNode[len];
-        targetNodes = new TreeNode[len];
+        sourceNodes = withTreeNodes ? new TreeNode[len] : null;
+        targetNodes = withTreeNodes ? new TreeNode[len] : null;
         int i = 0;
         for (IntIntPair st : workload) {
+            if (st == null) { // an unregistered slot
+                sources[i] = EMPTY_ROOT;
+                targets[i++] = EMPTY_ROOT;
+                continue;
+            }
             sources[i] = st.firstInt();
             targets[i++] = st.secondInt();
         }
@@ -52,8 +67,11 @@ public class ForwardBuffer {
     }
 
     RootAndChild insertEdgeAndGetRoots(int source, int target) {
+        int numOfVertices = vertex2Node.size();
         TreeNode sourceTreeNode = vertex2Node.computeIfAbsent(source, k -> new TreeNode(source));
+        rootAndChildInF.isSourceNew = vertex2Node.size() > numOfVertices;
         TreeNode targetTreeNode = vertex2Node.computeIfAbsent(target, k -> new TreeNode(target));
+        rootAndChildInF.isTargetNew = vertex2Node.size() > numOfVertices + (rootAndChildInF.isSourceNew ? 1 : 0);
         TreeNode rootOfSource = find(sourceTreeNode);
         TreeNode rootOfTarget = find(targetTreeNode);
         if (rootOfSource != rootOfTarget) {
@@ -135,6 +153,54 @@ public class ForwardBuffer {
         return rootSource == rootTarget;
     }
 
+    @Override
+    public long estimatedMemoryConsumption() {
+        return OPEN_HASH_MAP + MemoryAccountable.openHashMapSlots(vertex2Node.size(), Integer.BYTES + REFERENCE)
+                + (long) vertex2Node.size() * TREE_NODE
+                + estimatedWorkloadMemoryConsumption();
+    }
+
+    // the workload pairs and their cached nodes or ids
+    long estimatedWorkloadMemoryConsumption() {
+        return sources == null ? 0 : (long) sources.length * 4 * Integer.BYTES;
+    }
+
+    // set up a workload pair that is registered at runtime, the nodes of source and target are looked up lazily
+    void registerQuery(int slot, int source, int target) {
+        if (sources == null || slot >= sources.length) {
+            int len = sources == null ? 0 : sources.length, newLen = Math.max(slot + 1, len << 1);
+            sources = sources == null ? new int[newLen] : Arrays.copyOf(sources, newLen);
+            targets = targets == null ? new int[newLen] : Arrays.copyOf(targets, newLen);
+            sourceNodes = sourceNodes == null ? new TreeNode[newLen] : Arrays.copyOf(sourceNodes, newLen);
+            targetNodes = targetNodes == null ? new TreeNode[newLen] : Arrays.copyOf(targetNodes, newLen);
+        }
+        sources[slot] = source;
+        targets[slot] = target;
+        sourceNodes[slot] = null;
+        targetNodes[slot] = null;
+    }
+
+    // compute the roots of source and target for an ad-hoc query, EMPTY_ROOT if a vertex is not in the forward buffer
+    void findRoots(int source, int target, RootPair rootsInF) {
+        if (nodeCache == null)
+            nodeCache = new NodeCache<>();
+        TreeNode sourceNode = nodeCache.get(source, vertex2Node);
+        rootsInF.sourceRoot = sourceNode == null ? EMPTY_ROOT : find(sourceNode).v;
+        TreeNode targetNode = nodeCache.get(target, vertex2Node);
+        rootsInF.targetRoot = targetNode == null ? EMPTY_ROOT : find(targetNode).v;
+    }
+
+    // the root of the vertex, EMPTY_ROOT if the vertex is not in the forward buffer
+    int findRoot(int v) {
+        TreeNode node = vertex2Node.get(v);
+        return node == null ? EMPTY_ROOT : find(node).v;
+    }
+
+    // the number of vertices in the tree of the root
+    int sizeOfRoot(int root) {
+        return vertex2Node.get(root).sizeOfSubTree;
+    }
+
     void findSourceRootForIntraConnected(int workloadIndex, RootPair rootsInF) { // test only
         TreeNode sourceNode = sourceNodes[workloadIndex];
         if (sourceNode == null) {
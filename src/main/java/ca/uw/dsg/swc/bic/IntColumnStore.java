@@ -0,0 +1,157 @@
+package ca.uw.dsg.swc.bic;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+// int columns of the same capacity, stored on the heap or off-heap
+// off-heap columns are not seen by the garbage collector, and are returned to their pool by free(), such that a later store reuses them
+abstract class IntColumnStore {
+
+    // the columns are off-heap and taken from offHeapPool, unless it is null
+    static IntColumnStore create(int numOfColumns, int capacity, OffHeapPool offHeapPool) {
+        return offHeapPool != null ? offHeapPool.acquire(numOfColumns, capacity) : new HeapIntColumnStore(numOfColumns, capacity);
+    }
+
+    abstract int get(int column, int index);
+
+    abstract void set(int column, int index, int value);
+
+    abstract int capacity();
+
+    // double the capacity, keeping the contents
+    abstract void grow();
+
+    abstract long sizeInBytes();
+
+    void free() {
+    }
+
+    static class HeapIntColumnStore extends IntColumnStore {
+        private final int[][] columns;
+
+        HeapIntColumnStore(int numOfColumns, int capacity) {
+            this.columns = new int[numOfColumns][capacity];
+        }
+
+        @Override
+        int get(int column, int index) {
+            return columns[column][index];
+        }
+
+        @Override
+        void set(int column, int index, int value) {
+            columns[column][index] = value;
+        }
+
+        @Override
+        int capacity() {
+            return columns[0].length;
+        }
+
+        @Override
+        void grow() {
+            for (int i = 0; i < columns.length; i++)
+                columns[i] = Arrays.copyOf(columns[i], columns[i].length << 1);
+        }
+
+        @Override
+        long sizeInBytes() {
+            return (long) columns.length * capacity() * Integer.BYTES;
+        }
+    }
+
+    // the Foreign Memory API is not available on the targeted Java 11, such that the columns are direct buffers, which are allocated outside the heap
+    // and are neither traced nor copied by the garbage collector; the memory of a direct buffer can only be reclaimed once the buffer object is collected,
+    // which may wait for an old-generation collection, such that the buffers are kept in a pool and reused instead of being dropped
+    static class OffHeapIntColumnStore extends IntColumnStore {
+        private final OffHeapPool pool;
+        private final IntBuffer[] columns;
+        private boolean isFree; // true while the store is in its pool
+
+        private OffHeapIntColumnStore(OffHeapPool pool, int numOfColumns, int capacity) {
+            this.pool = pool;
+            this.columns = new IntBuffer[numOfColumns];
+            for (int i = 0; i < numOfColumns; i++)
+                columns[i] = allocate(capacity);
+        }
+
+        private static IntBuffer allocate(int capacity) {
+            return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+
+        @Override
+        int get(int column, int index) {
+            return columns[column].get(index);
+        }
+
+        @Override
+        void set(int column, int index, int value) {
+            columns[column].put(index, value);
+        }
+
+        @Override
+        int capacity() {
+            return columns[0].capacity();
+        }
+
+        // the replaced buffers are reclaimed by the garbage collector, which is rare once the pooled stores have reached the capacity of the chunks
+        @Override
+        void grow() {
+            for (int i = 0; i < columns.length; i++) {
+                IntBuffer column = allocate(columns[i].capacity() << 1);
+                column.put(columns[i].duplicate()); // the accesses are absolute, such that the positions stay at 0
+                columns[i] = column;
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return (long) columns.length * capacity() * Integer.BYTES;
+        }
+
+        // the store is returned to its pool, and must not be used afterwards; a second call has no effect
+        @Override
+        void free() {
+            if (!isFree) {
+                isFree = true;
+                pool.release(this);
+            }
+        }
+    }
+
+    // a small pool of off-heap stores, such that the direct buffers of a discarded backward buffer are reused by the backward buffer of a later chunk,
+    // and the off-heap memory of an instance is bounded by the stores of CAPACITY backward buffers and the one in use, instead of waiting for collections
+    // stores can be released by the background thread of the asynchronous backward computation
+    static class OffHeapPool {
+        private static final int CAPACITY = 2; // the backward buffer being discarded and the one being computed, see ChunkPool
+
+        private final ArrayDeque<OffHeapIntColumnStore> stores = new ArrayDeque<>(CAPACITY);
+
+        // a pooled store keeps its contents, which are overwritten before they are read, as the columns of a vertex are set when it is added
+        synchronized IntColumnStore acquire(int numOfColumns, int capacity) {
+            OffHeapIntColumnStore store = stores.poll();
+            if (store == null || store.columns.length != numOfColumns) // the number of columns only changes before the first edge, see setComponentAggregates
+                return new OffHeapIntColumnStore(this, numOfColumns, capacity);
+            store.isFree = false;
+            if (store.capacity() < capacity)
+                for (int i = 0; i < numOfColumns; i++)
+                    store.columns[i] = OffHeapIntColumnStore.allocate(capacity);
+            return store;
+        }
+
+        synchronized void release(OffHeapIntColumnStore store) {
+            if (stores.size() < CAPACITY)
+                stores.push(store);
+        }
+
+        synchronized long sizeInBytes() {
+            long ret = 0;
+            for (OffHeapIntColumnStore store : stores)
+                ret += store.sizeInBytes();
+            return ret;
+        }
+    }
+}
@@ -1,30 +1,85 @@
 package ca.uw.dsg.swc.bic;
 
-import static ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity.base;
+import ca.uw.dsg.swc.MemoryAccountable;
 
-public class IntervalStore {
-    private final boolean[] data;
+// a set of snapshot indexes in [0, size), stored as a bitset such that an interval is inserted word by word
+// the stores stay on the heap with off-heap backward buffers: a store of a chunk of at most 64 elements is one word inside the object of its edge,
+// and a direct buffer per bipartite edge would add a native allocation and a heap object larger than the store itself
+public abstract class IntervalStore {
 
-    public IntervalStore(int size) {
-        this.data = new boolean[size];
+    public static IntervalStore create(int size) {
+        return size <= Long.SIZE ? new WordIntervalStore() : new BitSetIntervalStore(size);
     }
 
-    public void insert(int l, int h) {
-//        for (int i = l; i <= h; i++)
-//            data[i] = true;
-        System.arraycopy(base, l, data, l, h - l + 1);
+    public abstract void insert(int l, int h);
+
+    public abstract boolean containsKey(int k);
+
+    public abstract void insertAll(IntervalStore intervalStore);
+
+    // the footprint of a store created by create(size), i.e., an object with a long, or an object with a reference to an array of words
+    static long sizeInBytes(int size) {
+        if (size <= Long.SIZE)
+            return MemoryAccountable.aligned(MemoryAccountable.OBJECT_HEADER + Long.BYTES);
+        return MemoryAccountable.aligned(MemoryAccountable.OBJECT_HEADER + MemoryAccountable.REFERENCE)
+                + MemoryAccountable.aligned(MemoryAccountable.ARRAY_HEADER + (long) ((size + Long.SIZE - 1) >>> 6) * Long.BYTES);
     }
 
-    public boolean containsKey(int k) {
-        return data[k];
+    // the bits from l to h (inclusive) within a word, where 0 <= l <= h < 64
+    static long mask(int l, int h) {
+        return (-1L << l) & (-1L >>> (63 - h));
     }
 
-    public void insertAll(IntervalStore intervalStore) {
-        boolean[] other = intervalStore.data;
-        for (int i = 0, len = other.length; i < len; i++) {
-            if (other[i])
-                data[i] = true;
+    // chunks of at most 64 elements, i.e., range/slide <= 64, which is the common case
+    static class WordIntervalStore extends IntervalStore {
+        private long data;
+
+        @Override
+        public void insert(int l, int h) {
+            data |= mask(l, h);
+        }
+
+        @Override
+        public boolean containsKey(int k) {
+            return (data & (1L << k)) != 0;
+        }
+
+        @Override
+        public void insertAll(IntervalStore intervalStore) {
+            data |= ((WordIntervalStore) intervalStore).data;
         }
     }
 
+    static class BitSetIntervalStore extends IntervalStore {
+        private final long[] data;
+
+        BitSetIntervalStore(int size) {
+            this.data = new long[(size + Long.SIZE - 1) >>> 6];
+        }
+
+        @Override
+        public void insert(int l, int h) {
+            int lw = l >>> 6, hw = h >>> 6;
+            if (lw == hw) {
+                data[lw] |= mask(l & 63, h & 63);
+                return;
+            }
+            data[lw] |= -1L << l; // the shift distance of a long is taken modulo 64
+            for (int i = lw + 1; i < hw; i++)
+                data[i] = -1L;
+            data[hw] |= -1L >>> (63 - (h & 63));
+        }
+
+        @Override
+        public boolean containsKey(int k) {
+            return (data[k >>> 6] & (1L << k)) != 0;
+        }
+
+        @Override
+        public void insertAll(IntervalStore intervalStore) {
+            long[] other = ((BitSetIntervalStore) intervalStore).data;
+            for (int i = 0, len = other.length; i < len; i++)
+                data[i] |= other[i];
+        }
+    }
 }
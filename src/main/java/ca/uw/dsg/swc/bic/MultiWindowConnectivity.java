@@ -0,0 +1,265 @@
+package ca.uw.dsg.swc.bic;
+
+import ca.uw.dsg.swc.MemoryAccountable;
+import ca.uw.dsg.swc.ReorderBuffer;
+import ca.uw.dsg.swc.ResultSink;
+import ca.uw.dsg.swc.StreamingEdge;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// evaluates the workloads of several window specifications over one stream
+// the specifications with the same range share a core, i.e., one BIC instance whose panes have length gcd(range, slides of the specifications),
+// such that an edge is unioned into the forward buffer once per range, instead of once per specification
+// every window of a specification is aligned to the panes of its core, and is answered from the backward buffer at the index of its start
+// the edges are stored once for all cores, in the columns of a pane store, and a chunk of a core is a run of its positions, see PaneStore,
+// such that a core only counts the edges of its panes, and builds its backward buffers from the shared columns
+// as a chunk is a run of positions, the cores need no common pane length, and a core keeps the panes of its own specifications instead of
+// panes of the gcd over all ranges and slides, which is as short as 1 ms for coprime ranges and would make every chunk that many panes long
+// the unions are not shared by cores with different ranges, as the forward and backward buffers of a core are those of its own chunks, whose length is its range,
+// such that the ingest cost is divided by the number of specifications per range, and the edges are stored once instead of once per range
+public class MultiWindowConnectivity implements MemoryAccountable {
+    private final List<Specification> specifications;
+    private final List<Core> cores;
+    private final BidirectionalIncrementalConnectivity.BackwardComputation backwardComputation;
+    private PaneStore paneStore; // the edges of the current chunks of the cores, created by each run
+    private long slideOfReordering; // the gcd of the slides, such that a released slide is complete for every specification
+    private long allowedLateness;
+    private boolean edgeDeletions;
+    private ReorderBuffer reorderBuffer;
+
+    public MultiWindowConnectivity(List<WindowSpecification> windowSpecifications) {
+        this(windowSpecifications, BidirectionalIncrementalConnectivity.BackwardComputation.SYNCHRONOUS);
+    }
+
+    public MultiWindowConnectivity(List<WindowSpecification> windowSpecifications, BidirectionalIncrementalConnectivity.BackwardComputation backwardComputation) {
+        this.backwardComputation = backwardComputation;
+        this.specifications = new ArrayList<>(windowSpecifications.size());
+        this.cores = new ArrayList<>();
+
+        Map<Long, Core> range2Core = new LinkedHashMap<>();
+        for (WindowSpecification windowSpecification : windowSpecifications) {
+            long range = windowSpecification.range.toMillis(), slide = windowSpecification.slide.toMillis();
+            Core core = range2Core.computeIfAbsent(range, Core::new);
+            core.slide = core.specifications.isEmpty() ? slide : BidirectionalIncrementalConnectivity.gcd(core.slide, slide);
+            slideOfReordering = BidirectionalIncrementalConnectivity.gcd(slideOfReordering, slide);
+
+            int[] slots = new int[windowSpecification.workload.size()];
+            for (int i = 0; i < slots.length; i++) // the same query in several specifications is answered from one slot of the core
+                slots[i] = core.slotOf(windowSpecification.workload.get(i));
+            Specification specification = new Specification(range, slide, slots);
+            core.specifications.add(specification);
+            specifications.add(specification);
+        }
+        cores.addAll(range2Core.values());
+    }
+
+    // see AbstractSlidingWindowConnectivity.setAllowedLateness
+    public void setAllowedLateness(Duration allowedLateness) {
+        this.allowedLateness = allowedLateness.toMillis();
+    }
+
+    // see BidirectionalIncrementalConnectivity.setEdgeDeletions
+    public void setEdgeDeletions(boolean edgeDeletions) {
+        this.edgeDeletions = edgeDeletions;
+    }
+
+    public long getNumOfDroppedEdges() {
+        return reorderBuffer == null ? 0 : reorderBuffer.getNumOfDroppedEdges();
+    }
+
+    public int getNumOfCores() {
+        return cores.size();
+    }
+
+    // outputStreams.get(i) are the output streams of the workload of the i-th specification, with the same semantics as
+    // AbstractSlidingWindowConnectivity.computeSlidingWindowConnectivity, i.e., the windows of every specification start at the first edge
+    public void computeSlidingWindowConnectivity(Collection<StreamingEdge> inputStream, List<List<List<Boolean>>> outputStreams) {
+        if (outputStreams.size() != specifications.size())
+            return;
+        ResultSink[] resultSinks = new ResultSink[specifications.size()];
+        for (int i = 0; i < specifications.size(); i++) {
+            if (outputStreams.get(i).size() != specifications.get(i).slots.length)
+                return;
+            resultSinks[i] = new OutputStreamsSink(outputStreams.get(i));
+        }
+        computeSlidingWindowConnectivity(inputStream, resultSinks);
+    }
+
+    // resultSinks[i] receives the answers of the i-th specification window by window, as a bitmap over the slots of its workload, see ResultSink
+    public void computeSlidingWindowConnectivity(Collection<StreamingEdge> inputStream, ResultSink[] resultSinks) {
+        if (inputStream.isEmpty())
+            return;
+        if (resultSinks.length != specifications.size())
+            return;
+        for (int i = 0; i < specifications.size(); i++)
+            specifications.get(i).resultSink = resultSinks[i];
+
+        reorderBuffer = allowedLateness == 0 ? null : new ReorderBuffer(inputStream.iterator(), allowedLateness, slideOfReordering);
+        Iterator<StreamingEdge> streamingEdgeIterator = reorderBuffer == null ? inputStream.iterator() : reorderBuffer;
+        StreamingEdge streamingEdge = streamingEdgeIterator.next();
+        paneStore = new PaneStore();
+        for (Core core : cores)
+            core.start(streamingEdge.timeStamp, backwardComputation, edgeDeletions, paneStore);
+        insert(streamingEdge);
+
+        while (streamingEdgeIterator.hasNext()) {
+            streamingEdge = streamingEdgeIterator.next();
+            for (Core core : cores)
+                core.computeWindowsBefore(streamingEdge.timeStamp);
+            insert(streamingEdge);
+        }
+    }
+
+    // every core moves its current chunk to the edge before the edge is appended to the pane store, as a new chunk starts at the next position of the store
+    private void insert(StreamingEdge streamingEdge) {
+        for (Core core : cores)
+            core.insert(streamingEdge);
+        if (!streamingEdge.isDeletion)
+            paneStore.append(streamingEdge.source, streamingEdge.target);
+    }
+
+    public void shutdown() {
+        for (Core core : cores)
+            if (core.bic != null)
+                core.bic.shutdown();
+    }
+
+    // the columns of the pane store, and the offsets of the chunks and the buffers of the cores
+    @Override
+    public long estimatedMemoryConsumption() {
+        long ret = paneStore == null ? 0 : paneStore.estimatedMemoryConsumption();
+        for (Core core : cores)
+            if (core.bic != null)
+                ret += core.bic.estimatedMemoryConsumption();
+        return ret;
+    }
+
+    public static class WindowSpecification {
+        private final Duration range, slide;
+        private final List<IntIntPair> workload;
+
+        public WindowSpecification(Duration range, Duration slide, List<IntIntPair> workload) {
+            this.range = range;
+            this.slide = slide;
+            this.workload = workload;
+        }
+    }
+
+    private static class Specification {
+        private final long range, slide;
+        private final int[] slots; // the slots of the workload in the core
+        private final long[] answers; // the bitmap of the current window, reused from window to window
+        private long startOfCurrentWindow;
+        private ResultSink resultSink;
+
+        Specification(long range, long slide, int[] slots) {
+            this.range = range;
+            this.slide = slide;
+            this.slots = slots;
+            this.answers = new long[(slots.length + Long.SIZE - 1) >>> 6];
+        }
+    }
+
+    // the answers of a specification are appended to its output streams
+    private static class OutputStreamsSink implements ResultSink {
+        private final List<List<Boolean>> outputStreams;
+
+        OutputStreamsSink(List<List<Boolean>> outputStreams) {
+            this.outputStreams = outputStreams;
+        }
+
+        @Override
+        public void accept(long startOfWindow, long[] answers, int numOfQueries) {
+            for (int i = 0; i < numOfQueries; i++)
+                outputStreams.get(i).add((answers[i >>> 6] & 1L << i) != 0);
+        }
+
+        @Override
+        public void acceptRepeated(long startOfWindow, long slide, long numOfWindows, long[] answers, int numOfQueries) {
+            for (int i = 0; i < numOfQueries; i++)
+                outputStreams.get(i).addAll(Collections.nCopies((int) numOfWindows, (answers[i >>> 6] & 1L << i) != 0));
+        }
+    }
+
+    private static class Core {
+        private final long range;
+        private long slide; // the gcd of the slides of the specifications
+        private final List<Specification> specifications;
+        private final List<IntIntPair> workload; // the union of the workloads of the specifications
+        private final Object2IntOpenHashMap<IntIntPair> query2Slot;
+        private BidirectionalIncrementalConnectivity bic; // created at the first edge, which is the start of the first window
+        private long lastTimeStamp;
+
+        Core(long range) {
+            this.range = range;
+            this.specifications = new ArrayList<>();
+            this.workload = new ArrayList<>();
+            this.query2Slot = new Object2IntOpenHashMap<>();
+            this.query2Slot.defaultReturnValue(-1);
+        }
+
+        int slotOf(IntIntPair query) {
+            int slot = query2Slot.getInt(query);
+            if (slot == -1) {
+                slot = workload.size();
+                workload.add(query);
+                query2Slot.put(query, slot);
+            }
+            return slot;
+        }
+
+        void start(long firstTimeStamp, BidirectionalIncrementalConnectivity.BackwardComputation backwardComputation, boolean edgeDeletions, PaneStore paneStore) {
+            if (bic != null)
+                bic.shutdown();
+            bic = new BidirectionalIncrementalConnectivity(Duration.ofMillis(range), Duration.ofMillis(slide), firstTimeStamp, workload, backwardComputation, paneStore);
+            bic.setEdgeDeletions(edgeDeletions);
+            lastTimeStamp = firstTimeStamp;
+            for (Specification specification : specifications)
+                specification.startOfCurrentWindow = firstTimeStamp;
+        }
+
+        // an edge before the current windows of every specification is not queried, and is still inserted as the panes of the core are exact
+        void insert(StreamingEdge streamingEdge) {
+            if (streamingEdge.isDeletion)
+                bic.delete(streamingEdge);
+            else {
+                bic.insert(streamingEdge);
+                lastTimeStamp = streamingEdge.timeStamp;
+            }
+        }
+
+        // the windows of the specifications that end before the timestamp are answered in the order of their starts, which is the order of their ends,
+        // such that the chunks of the core only move forward; an empty window is answered once and repeated in bulk as in the single-window driver
+        void computeWindowsBefore(long timeStamp) {
+            while (true) {
+                Specification next = null;
+                for (Specification specification : specifications)
+                    if (timeStamp - specification.startOfCurrentWindow >= range && (next == null || specification.startOfCurrentWindow < next.startOfCurrentWindow))
+                        next = specification;
+                if (next == null)
+                    return;
+
+                Arrays.fill(next.answers, 0L);
+                bic.queryWindow(next.startOfCurrentWindow, next.slots, next.answers);
+                next.resultSink.accept(next.startOfCurrentWindow, next.answers, next.slots.length);
+                boolean isEmpty = next.startOfCurrentWindow > lastTimeStamp;
+                next.startOfCurrentWindow += next.slide;
+                if (isEmpty && timeStamp - next.startOfCurrentWindow >= range) {
+                    long numOfWindows = (timeStamp - range - next.startOfCurrentWindow) / next.slide + 1;
+                    next.resultSink.acceptRepeated(next.startOfCurrentWindow, next.slide, numOfWindows, next.answers, next.slots.length);
+                    next.startOfCurrentWindow += numOfWindows * next.slide;
+                }
+            }
+        }
+    }
+}
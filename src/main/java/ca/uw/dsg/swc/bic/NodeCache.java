@@ -0,0 +1,33 @@
+package ca.uw.dsg.swc.bic;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+// a small direct-mapped cache in front of the vertex-to-node map of a buffer, used by ad-hoc queries
+// a slot holds the last vertex mapped to it, and only vertices that exist in the buffer are cached
+class NodeCache<N> {
+    private static final int SIZE = 1 << 10;
+    private static final int MASK = SIZE - 1;
+
+    private final int[] vertices;
+    private final Object[] nodes;
+
+    NodeCache() {
+        this.vertices = new int[SIZE];
+        this.nodes = new Object[SIZE];
+    }
+
+    @SuppressWarnings("unchecked")
+    N get(int v, Int2ObjectOpenHashMap<N> vertex2Node) {
+        int slot = HashCommon.mix(v) & MASK;
+        Object node = nodes[slot];
+        if (node != null && vertices[slot] == v)
+            return (N) node;
+        N ret = vertex2Node.get(v);
+        if (ret != null) {
+            vertices[slot] = v;
+            nodes[slot] = ret;
+        }
+        return ret;
+    }
+}
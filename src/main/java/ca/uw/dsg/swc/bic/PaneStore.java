@@ -0,0 +1,124 @@
+package ca.uw.dsg.swc.bic;
+
+import ca.uw.dsg.swc.MemoryAccountable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// the edges of one stream stored once column by column, and shared by the chunks of several BIC instances with different ranges, see MultiWindowConnectivity
+// a chunk of an instance is a run of consecutive positions of the stream, such that it only keeps the offsets of its own panes, see PaneStore.View
+// once the columns are full, the edges before the current chunks of all instances are dropped by copying the other edges into new columns,
+// instead of compacting in place, such that a complete chunk keeps reading the columns it was filled in, also while its backward buffer is computed by another thread
+class PaneStore implements MemoryAccountable {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private int[] sources, targets;
+    private long firstPosition; // the position of sources[0] in the stream
+    private long numOfEdges; // the edges appended so far, i.e., the position of the next edge
+    private final List<View> openViews; // the current chunks of the instances, which follow the columns when they are replaced
+
+    PaneStore() {
+        this.sources = new int[INITIAL_CAPACITY];
+        this.targets = new int[INITIAL_CAPACITY];
+        this.openViews = new ArrayList<>();
+    }
+
+    // the edge is appended after it is inserted into every instance, i.e., it is at the position following the edges of the current chunks
+    void append(int source, int target) {
+        int index = (int) (numOfEdges - firstPosition);
+        if (index == sources.length)
+            index = replaceColumns();
+        sources[index] = source;
+        targets[index] = target;
+        numOfEdges++;
+    }
+
+    // the edges from the first position of the open chunks on are copied into columns of twice their number, and the open chunks read the new columns
+    // each edge is copied once per replacement, and a replacement follows at least as many appends as edges are copied, i.e., a copy per edge amortized
+    private int replaceColumns() {
+        long from = numOfEdges;
+        for (View view : openViews)
+            from = Math.min(from, view.firstPosition);
+        int numOfKeptEdges = (int) (numOfEdges - from), capacity = Math.max(INITIAL_CAPACITY, numOfKeptEdges << 1);
+        int[] newSources = new int[capacity], newTargets = new int[capacity];
+        System.arraycopy(sources, (int) (from - firstPosition), newSources, 0, numOfKeptEdges);
+        System.arraycopy(targets, (int) (from - firstPosition), newTargets, 0, numOfKeptEdges);
+        sources = newSources;
+        targets = newTargets;
+        firstPosition = from;
+        for (View view : openViews)
+            view.readColumns();
+        return numOfKeptEdges;
+    }
+
+    // a chunk starting at startTime, whose edges are those appended from now on
+    View acquire(int chunkSize, long lengthOfPane, long startTime) {
+        View view = new View(this, chunkSize, lengthOfPane, numOfEdges);
+        view.reset(startTime);
+        view.readColumns();
+        openViews.add(view);
+        return view;
+    }
+
+    // the chunk receives no more edges, and keeps the columns it was filled in, such that it can be read by another thread
+    void complete(Chunk chunk) {
+        View view = (View) chunk;
+        view.isOpen = false;
+        openViews.remove(view);
+    }
+
+    // the chunks only keep the offsets of their panes, which are counted by the instances
+    @Override
+    public long estimatedMemoryConsumption() {
+        return (long) sources.length * 2 * Integer.BYTES;
+    }
+
+    // the edges of the chunk are at [offset, offset + getNumOfEdges()) of the columns, which are replaced by the store as long as the chunk is open
+    static class View extends Chunk {
+        private final PaneStore paneStore;
+        private final long firstPosition; // the position of the first edge of the chunk in the stream
+        private int[] sources, targets;
+        private int offset;
+        private boolean isOpen; // written and read by the ingest thread, and false before the chunk is handed to another thread
+
+        private View(PaneStore paneStore, int chunkSize, long lengthOfPane, long firstPosition) {
+            super(chunkSize, lengthOfPane, 0, false, null);
+            this.paneStore = paneStore;
+            this.firstPosition = firstPosition;
+            this.isOpen = true;
+        }
+
+        private void readColumns() {
+            sources = paneStore.sources;
+            targets = paneStore.targets;
+            offset = (int) (firstPosition - paneStore.firstPosition);
+        }
+
+        // the edge is appended to the store once for all instances, see PaneStore.append
+        @Override
+        void append(int source, int target, long timeStamp) {
+        }
+
+        @Override
+        public int getSource(int position) {
+            return sources[offset + position];
+        }
+
+        @Override
+        public int getTarget(int position) {
+            return targets[offset + position];
+        }
+
+        // a chunk that is released before it is complete, e.g., the current chunk before a gap, does not hold the columns anymore
+        @Override
+        void release() {
+            if (isOpen)
+                paneStore.complete(this);
+        }
+
+        @Override
+        Chunk copy() {
+            throw new UnsupportedOperationException("A chunk of a pane store is not copied, as its instance is not checkpointed");
+        }
+    }
+}
@@ -2,4 +2,5 @@ package ca.uw.dsg.swc.bic;
 
 public class RootAndChild {
     int root, child;
+    boolean isSourceNew, isTargetNew; // the vertex was not in the forward buffer before the edge
 }
@@ -0,0 +1,87 @@
+package ca.uw.dsg.swc.bic;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import java.util.Arrays;
+
+import static ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity.EMPTY_ROOT;
+
+// a union-find over the edges of the current chunk from the first edge of a pane on, which answers the queries on a suffix of the window
+// that starts inside the current chunk, see BidirectionalIncrementalConnectivity.connected(int, int, Duration)
+// it is kept between queries, such that a query only unions the edges inserted since the previous one, and it is built again,
+// in time linear in the edges of the suffix, if the suffix starts at another pane, the chunk moves on, or edges of the chunk are deleted;
+// union by size and path compression keep a find nearly constant in amortized time, and the arrays are reused by the next build
+class SuffixUnionFind {
+    private final Int2IntOpenHashMap ids; // a vertex to its dense index
+    private int[] parent, size;
+
+    private Chunk chunk; // null if the union-find is built again by the next query
+    private long startOfChunk; // a chunk of the pool is reused for a later one
+    private int fromElement;
+    private int numOfUnionedEdges; // the edges before this position of the chunk are unioned
+
+    SuffixUnionFind() {
+        this.ids = new Int2IntOpenHashMap();
+        this.ids.defaultReturnValue(EMPTY_ROOT);
+        this.parent = new int[16];
+        this.size = new int[16];
+    }
+
+    void invalidate() {
+        chunk = null;
+    }
+
+    boolean connected(Chunk chunk, long startOfChunk, int fromElement, int source, int target) {
+        if (chunk != this.chunk || startOfChunk != this.startOfChunk || fromElement != this.fromElement) {
+            this.chunk = chunk;
+            this.startOfChunk = startOfChunk;
+            this.fromElement = fromElement;
+            numOfUnionedEdges = chunk.getStartOfElement(fromElement);
+            ids.clear();
+        }
+        for (int end = chunk.getNumOfEdges(); numOfUnionedEdges < end; numOfUnionedEdges++)
+            if (!chunk.isRemoved(numOfUnionedEdges))
+                union(idOf(chunk.getSource(numOfUnionedEdges)), idOf(chunk.getTarget(numOfUnionedEdges)));
+        int s = ids.get(source), t = ids.get(target);
+        return s != EMPTY_ROOT && t != EMPTY_ROOT && find(s) == find(t);
+    }
+
+    private int idOf(int v) {
+        int ret = ids.putIfAbsent(v, ids.size());
+        if (ret != EMPTY_ROOT)
+            return ret;
+        ret = ids.size() - 1;
+        if (ret == parent.length) {
+            parent = Arrays.copyOf(parent, ret << 1);
+            size = Arrays.copyOf(size, ret << 1);
+        }
+        parent[ret] = ret;
+        size[ret] = 1;
+        return ret;
+    }
+
+    private int find(int id) {
+        int root = id;
+        while (parent[root] != root)
+            root = parent[root];
+        while (parent[id] != root) { // path compression
+            int next = parent[id];
+            parent[id] = root;
+            id = next;
+        }
+        return root;
+    }
+
+    private void union(int u, int v) {
+        int ru = find(u), rv = find(v);
+        if (ru == rv)
+            return;
+        if (size[ru] > size[rv]) { // the smaller tree is linked below the larger one
+            int temp = ru;
+            ru = rv;
+            rv = temp;
+        }
+        parent[ru] = rv;
+        size[rv] += size[ru];
+    }
+}
@@ -0,0 +1,59 @@
+package ca.uw.dsg.swc.bic;
+
+import ca.uw.dsg.swc.MemoryAccountable;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import java.util.Arrays;
+
+// maps external vertex ids to contiguous ids, such that per-vertex state can be kept in arrays
+// an id is stable until the dictionary is compacted, see compact(int[], int)
+class VertexDictionary {
+    static final int ABSENT = -1;
+
+    private final Int2IntOpenHashMap vertex2Id;
+    private int[] id2Vertex;
+
+    VertexDictionary() {
+        this.vertex2Id = new Int2IntOpenHashMap();
+        this.vertex2Id.defaultReturnValue(ABSENT);
+        this.id2Vertex = new int[16];
+    }
+
+    int getOrAdd(int v) {
+        int id = vertex2Id.putIfAbsent(v, vertex2Id.size());
+        if (id != ABSENT)
+            return id;
+        id = vertex2Id.size() - 1;
+        if (id == id2Vertex.length)
+            id2Vertex = Arrays.copyOf(id2Vertex, id << 1);
+        id2Vertex[id] = v;
+        return id;
+    }
+
+    // ABSENT if the vertex has never been seen, or has been dropped by a compaction
+    int get(int v) {
+        return vertex2Id.get(v);
+    }
+
+    int size() {
+        return vertex2Id.size();
+    }
+
+    // keeps only the vertices of the first num ids, which are distinct, and renumbers them by their position, i.e., ids[i] becomes i
+    // the map and the arrays are shrunk to the retained vertices, in time linear in num and the capacity of the map
+    void compact(int[] ids, int num) {
+        int[] retained = new int[Math.max(16, num << 1)];
+        for (int i = 0; i < num; i++)
+            retained[i] = id2Vertex[ids[i]];
+        id2Vertex = retained;
+        vertex2Id.clear();
+        vertex2Id.trim(num);
+        for (int i = 0; i < num; i++)
+            vertex2Id.put(retained[i], i);
+    }
+
+    long estimatedMemoryConsumption() {
+        return MemoryAccountable.OPEN_HASH_MAP + MemoryAccountable.openHashMapSlots(vertex2Id.size(), 2 * Integer.BYTES)
+                + (long) id2Vertex.length * Integer.BYTES;
+    }
+}
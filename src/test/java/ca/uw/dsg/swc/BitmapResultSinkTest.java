@@ -0,0 +1,122 @@
+package ca.uw.dsg.swc;
+
+import ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BitmapResultSinkTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void heapSinkAgainstOutputStreams() throws IOException {
+        for (int seed = 0; seed < 10; seed++)
+            try (BitmapResultSink sink = new BitmapResultSink()) {
+                checkAgainstOutputStreams(new Random(seed), sink);
+            }
+    }
+
+    @Test
+    public void spilledSinkAgainstOutputStreams() throws IOException {
+        for (int seed = 0; seed < 10; seed++)
+            try (BitmapResultSink sink = new BitmapResultSink(temporaryFolder.newFile().toPath())) {
+                checkAgainstOutputStreams(new Random(seed), sink);
+            }
+    }
+
+    // the words span several mapped regions, and are in the file once the sink is closed
+    @Test
+    public void spilledSinkAcrossRegions() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        int numOfWindows = 600_000, numOfQueries = 100; // two words per window, i.e., more than one region of 2^20 words
+        long[] answers = new long[2];
+        try (BitmapResultSink sink = new BitmapResultSink(file)) {
+            for (int window = 0; window < numOfWindows; window++) {
+                answers[0] = window * 0x9E3779B97F4A7C15L;
+                answers[1] = window & ((1L << (numOfQueries - Long.SIZE)) - 1);
+                sink.accept(window, answers, numOfQueries);
+            }
+            sink.acceptRepeated(numOfWindows, 1, 3, answers, numOfQueries);
+            assertEquals(numOfWindows + 3, sink.getNumOfWindows());
+            for (int window = 0; window < numOfWindows + 3; window += 997) {
+                sink.getAnswers(window, answers);
+                int w = Math.min(window, numOfWindows - 1);
+                assertEquals(w * 0x9E3779B97F4A7C15L, answers[0]);
+                assertEquals(w & ((1L << (numOfQueries - Long.SIZE)) - 1), answers[1]);
+                assertEquals((w & 1) != 0, sink.isConnected(window, Long.SIZE));
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            ByteBuffer word = ByteBuffer.allocate(Long.BYTES); // the regions are in the default byte order
+            long window = numOfWindows - 1;
+            channel.read(word, window * 2 * Long.BYTES);
+            assertEquals(window * 0x9E3779B97F4A7C15L, word.flip().getLong());
+        }
+    }
+
+    // the stream has gaps of empty windows, such that runs of windows are passed by acceptRepeated, and the workload spans several words
+    private static void checkAgainstOutputStreams(Random random, BitmapResultSink sink) {
+        int numOfVertices = 60, numOfQueries = 70 + random.nextInt(100);
+        List<StreamingEdge> streamingEdges = new ArrayList<>();
+        long timeStamp = 0;
+        for (int i = 0; i < 2000; i++) {
+            timeStamp += random.nextInt(100) == 0 ? 5000 : random.nextInt(20);
+            streamingEdges.add(new StreamingEdge(random.nextInt(numOfVertices), random.nextInt(numOfVertices), timeStamp));
+        }
+        List<IntIntPair> workload = RandomStreams.workload(random, numOfVertices, numOfQueries);
+        Duration range = Duration.ofMillis(500), slide = Duration.ofMillis(100);
+        List<List<Boolean>> outputStreams = RandomStreams.outputStreams(numOfQueries);
+        new BidirectionalIncrementalConnectivity(range, slide, 0, workload).computeSlidingWindowConnectivity(streamingEdges, outputStreams);
+        CountingSink countingSink = new CountingSink(sink);
+        new BidirectionalIncrementalConnectivity(range, slide, 0, workload).computeSlidingWindowConnectivity(streamingEdges, countingSink);
+        assertTrue(countingSink.numOfRepeatedWindows > 0);
+
+        int numOfWindows = outputStreams.get(0).size();
+        assertEquals(numOfWindows, sink.getNumOfWindows());
+        long[] answers = new long[(numOfQueries + Long.SIZE - 1) >>> 6];
+        for (int window = 0; window < numOfWindows; window++) {
+            assertEquals(sink.getStartOfWindow(0) + window * slide.toMillis(), sink.getStartOfWindow(window));
+            assertEquals(numOfQueries, sink.getNumOfQueries(window));
+            sink.getAnswers(window, answers);
+            for (int slot = 0; slot < numOfQueries; slot++) {
+                boolean expected = outputStreams.get(slot).get(window);
+                assertEquals("window " + window + " slot " + slot, expected, sink.isConnected(window, slot));
+                assertEquals("window " + window + " slot " + slot, expected, (answers[slot >>> 6] & 1L << slot) != 0);
+            }
+        }
+    }
+
+    private static class CountingSink implements ResultSink {
+        private final ResultSink sink;
+        private long numOfRepeatedWindows;
+
+        CountingSink(ResultSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void accept(long startOfWindow, long[] answers, int numOfQueries) {
+            sink.accept(startOfWindow, answers, numOfQueries);
+        }
+
+        @Override
+        public void acceptRepeated(long startOfWindow, long slide, long numOfWindows, long[] answers, int numOfQueries) {
+            numOfRepeatedWindows += numOfWindows;
+            sink.acceptRepeated(startOfWindow, slide, numOfWindows, answers, numOfQueries);
+        }
+    }
+}
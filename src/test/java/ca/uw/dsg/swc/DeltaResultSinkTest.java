@@ -0,0 +1,104 @@
+package ca.uw.dsg.swc;
+
+import ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class DeltaResultSinkTest {
+
+    // the sink registers and unregisters queries between windows, and the reported flips are checked against the diff of the full bitmaps,
+    // where the answer of a slot whose query changed is false in the previous window
+    @Test
+    public void flipsAgainstFullBitmaps() {
+        for (int seed = 0; seed < 50; seed++) {
+            Random random = new Random(seed);
+            int numOfVertices = 50;
+            List<StreamingEdge> streamingEdges = new ArrayList<>();
+            long timeStamp = 0;
+            for (int i = 0; i < 3000; i++) {
+                timeStamp += random.nextInt(100) == 0 ? 5000 : random.nextInt(20); // gaps of empty windows
+                int source = random.nextInt(numOfVertices), target = random.nextInt(numOfVertices);
+                streamingEdges.add(new StreamingEdge(source, target, timeStamp));
+            }
+            BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(Duration.ofMillis(500), Duration.ofMillis(100), 0,
+                    RandomStreams.workload(random, numOfVertices, 100));
+            ChurningSink sink = new ChurningSink(bic, random, numOfVertices);
+            bic.computeSlidingWindowConnectivity(streamingEdges, sink);
+            assertFalse("seed " + seed, sink.numOfWindows == 0);
+        }
+    }
+
+    private static class ChurningSink implements ResultSink {
+        private final AbstractSlidingWindowConnectivity swc;
+        private final Random random;
+        private final int numOfVertices;
+        private final DeltaResultSink delta;
+        private int[] reportedSlots;
+        private long[] previous = new long[0];
+        private final BitSet changedSlots = new BitSet();
+        private int numOfWindows;
+
+        ChurningSink(AbstractSlidingWindowConnectivity swc, Random random, int numOfVertices) {
+            this.swc = swc;
+            this.random = random;
+            this.numOfVertices = numOfVertices;
+            this.delta = new DeltaResultSink(swc, (startOfWindow, flippedSlots, numOfFlippedSlots, answers) ->
+                    reportedSlots = Arrays.copyOf(flippedSlots, numOfFlippedSlots));
+        }
+
+        @Override
+        public void accept(long startOfWindow, long[] answers, int numOfQueries) {
+            check(answers, numOfQueries);
+            delta.accept(startOfWindow, answers, numOfQueries);
+            assertEquals(expectedFlips(answers, numOfQueries), IntArrayList.wrap(reportedSlots));
+            for (int i = 0, num = random.nextInt(4); i < num; i++) {
+                int slot = random.nextInt(swc.workload.size());
+                if (random.nextBoolean() && swc.workload.get(slot) != null)
+                    swc.unregisterQuery(slot);
+                else
+                    slot = swc.registerQuery(random.nextInt(numOfVertices), random.nextInt(numOfVertices));
+                changedSlots.set(slot);
+            }
+        }
+
+        // the windows of a gap are reported once
+        @Override
+        public void acceptRepeated(long startOfWindow, long slide, long numOfWindows, long[] answers, int numOfQueries) {
+            check(answers, numOfQueries);
+            delta.acceptRepeated(startOfWindow, slide, numOfWindows, answers, numOfQueries);
+            assertEquals(expectedFlips(answers, numOfQueries), IntArrayList.wrap(reportedSlots));
+        }
+
+        private void check(long[] answers, int numOfQueries) {
+            numOfWindows++;
+            reportedSlots = new int[0];
+            for (int i = 0; i < numOfQueries; i++)
+                if (swc.workload.get(i) == null)
+                    assertFalse("unregistered slot " + i, isSet(answers, i));
+        }
+
+        private IntArrayList expectedFlips(long[] answers, int numOfQueries) {
+            IntArrayList ret = new IntArrayList();
+            for (int i = 0; i < numOfQueries; i++)
+                if (isSet(answers, i) != (!changedSlots.get(i) && isSet(previous, i)))
+                    ret.add(i);
+            changedSlots.clear();
+            previous = Arrays.copyOf(answers, (numOfQueries + Long.SIZE - 1) >>> 6);
+            return ret;
+        }
+
+        private static boolean isSet(long[] bitmap, int i) {
+            return i >>> 6 < bitmap.length && (bitmap[i >>> 6] & 1L << i) != 0;
+        }
+    }
+}
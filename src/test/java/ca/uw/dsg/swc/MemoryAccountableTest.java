@@ -0,0 +1,110 @@
+package ca.uw.dsg.swc;
+
+import ca.uw.dsg.swc.baselines.FdcSlidingWindowConnectivity;
+import ca.uw.dsg.swc.baselines.dtree.DTreeConnectivity;
+import ca.uw.dsg.swc.baselines.etr.EtrConnectivity;
+import ca.uw.dsg.swc.baselines.hdt.HdtConnectivity;
+import ca.uw.dsg.swc.baselines.naive.DfsConnectivity;
+import ca.uw.dsg.swc.baselines.naive.RecalculatingWindowConnectivity;
+import ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// the O(1) estimates are compared with the JOL walk of the same scope at every window of a random stream
+public class MemoryAccountableTest {
+    private static final double TOLERANCE = 0.12;
+    private static final int NUM_OF_VERTICES = 2000;
+    private static final Duration RANGE = Duration.ofSeconds(50), SLIDE = Duration.ofSeconds(5);
+
+    private final List<StreamingEdge> streamingEdges;
+    private final List<IntIntPair> workload;
+
+    public MemoryAccountableTest() {
+        Random random = new Random(7);
+        streamingEdges = RandomStreams.edges(random, NUM_OF_VERTICES, 10_000, 10);
+        workload = RandomStreams.workload(random, NUM_OF_VERTICES, 100);
+    }
+
+    @Test
+    public void bidirectionalIncrementalConnectivity() {
+        check(() -> new BidirectionalIncrementalConnectivity(RANGE, SLIDE, 0, workload));
+    }
+
+    @Test
+    public void bidirectionalIncrementalConnectivityWithDenseVertexIds() {
+        check(() -> {
+            BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(RANGE, SLIDE, 0, workload);
+            bic.setDenseVertexIds(true);
+            return bic;
+        });
+    }
+
+    // the columns of the backward buffers are in direct buffers, which the JOL walk adds by their capacity, see memoryConsumption
+    @Test
+    public void bidirectionalIncrementalConnectivityWithOffHeapBackwardBuffers() {
+        check(() -> {
+            BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(RANGE, SLIDE, 0, workload);
+            bic.setOffHeapBackwardBuffers(true);
+            return bic;
+        });
+    }
+
+    @Test
+    public void bidirectionalIncrementalConnectivityWithComponentAggregates() {
+        check(() -> {
+            BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(RANGE, SLIDE, 0, workload);
+            bic.setComponentAggregates(true);
+            return bic;
+        });
+    }
+
+    @Test
+    public void recalculatingWindowConnectivity() {
+        check(() -> new RecalculatingWindowConnectivity(RANGE, SLIDE, workload));
+    }
+
+    @Test
+    public void eulerTourTrees() {
+        check(() -> new FdcSlidingWindowConnectivity(RANGE, SLIDE, workload, new EtrConnectivity()));
+    }
+
+    @Test
+    public void dTree() {
+        check(() -> new FdcSlidingWindowConnectivity(RANGE, SLIDE, workload, new DTreeConnectivity()));
+    }
+
+    @Test
+    public void hdt() {
+        check(() -> new FdcSlidingWindowConnectivity(RANGE, SLIDE, workload, new HdtConnectivity(NUM_OF_VERTICES)));
+    }
+
+    @Test
+    public void depthFirstSearch() {
+        check(() -> new FdcSlidingWindowConnectivity(RANGE, SLIDE, workload, new DfsConnectivity()));
+    }
+
+    private void check(Supplier<AbstractSlidingWindowConnectivity> factory) {
+        List<Long> estimated = new ArrayList<>(), measured = new ArrayList<>();
+        factory.get().computeQueriesAndGetMemoryConsumption(streamingEdges, RandomStreams.outputStreams(workload.size()), estimated);
+        AbstractSlidingWindowConnectivity calibrated = factory.get();
+        calibrated.setMemoryCalibration(true);
+        calibrated.computeQueriesAndGetMemoryConsumption(streamingEdges, RandomStreams.outputStreams(workload.size()), measured);
+
+        assertEquals(measured.size(), estimated.size());
+        assertTrue(estimated.size() > 1);
+        for (int i = 0; i < estimated.size(); i++) {
+            double ratio = (double) estimated.get(i) / measured.get(i);
+            assertTrue("window " + i + ": estimated " + estimated.get(i) + " bytes, measured " + measured.get(i) + " bytes",
+                    Math.abs(ratio - 1) <= TOLERANCE);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ca.uw.dsg.swc;
+
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// random streams and workloads shared by the tests, the timestamps increase by one step per edge, and an edge is never a self-loop
+public class RandomStreams {
+    private RandomStreams() {
+    }
+
+    public static List<StreamingEdge> edges(Random random, int numOfVertices, int numOfEdges, long step) {
+        List<StreamingEdge> ret = new ArrayList<>(numOfEdges);
+        for (int i = 0; i < numOfEdges; i++) {
+            int source = random.nextInt(numOfVertices), target = random.nextInt(numOfVertices - 1);
+            if (target >= source)
+                target++;
+            ret.add(new StreamingEdge(source, target, i * step));
+        }
+        return ret;
+    }
+
+    public static List<IntIntPair> workload(Random random, int numOfVertices, int numOfQueries) {
+        List<IntIntPair> ret = new ArrayList<>(numOfQueries);
+        for (int i = 0; i < numOfQueries; i++)
+            ret.add(IntIntPair.of(random.nextInt(numOfVertices), random.nextInt(numOfVertices)));
+        return ret;
+    }
+
+    public static List<List<Boolean>> outputStreams(int numOfQueries) {
+        List<List<Boolean>> ret = new ArrayList<>(numOfQueries);
+        for (int i = 0; i < numOfQueries; i++)
+            ret.add(new ArrayList<>());
+        return ret;
+    }
+}
@@ -0,0 +1,88 @@
+package ca.uw.dsg.swc;
+
+import ca.uw.dsg.swc.baselines.naive.RecalculatingWindowConnectivity;
+import ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReorderBufferTest {
+
+    // every edge arrives up to allowedLateness after its timestamp, some edges arrive later than that and are dropped,
+    // and the stream has gaps much longer than the ring of buckets; the answers are those of the sorted stream without the dropped edges
+    @Test
+    public void perturbedStreamsAgainstSortedStreams() {
+        for (int seed = 0; seed < 100; seed++) {
+            Random random = new Random(seed);
+            int numOfVertices = 5 + random.nextInt(40);
+            long slide = 1 + random.nextInt(10), range = slide * (1 + random.nextInt(8)), allowedLateness = 1 + random.nextInt((int) (slide * 4));
+            List<StreamingEdge> sorted = new ArrayList<>();
+            long timeStamp = 1000;
+            for (int i = 0, num = 50 + random.nextInt(400); i < num; i++) {
+                timeStamp += random.nextInt(50) == 0 ? slide * 1000 + random.nextInt((int) slide) : random.nextInt((int) slide);
+                sorted.add(new StreamingEdge(random.nextInt(numOfVertices), random.nextInt(numOfVertices), timeStamp));
+            }
+            List<StreamingEdge> arrivals = perturb(random, sorted, allowedLateness);
+            int numOfLateEdges = 0;
+            long maxTimeStamp = Long.MIN_VALUE;
+            for (int i = 0; i < arrivals.size(); i++) {
+                maxTimeStamp = Math.max(maxTimeStamp, arrivals.get(i).timeStamp);
+                if (i > 0 && random.nextInt(20) == 0) { // its slide ends before the watermark, such that it is released already
+                    arrivals.add(++i, new StreamingEdge(random.nextInt(numOfVertices), random.nextInt(numOfVertices), maxTimeStamp - allowedLateness - slide));
+                    numOfLateEdges++;
+                }
+            }
+
+            List<IntIntPair> workload = RandomStreams.workload(random, numOfVertices, 20);
+            Duration r = Duration.ofMillis(range), s = Duration.ofMillis(slide);
+            List<List<Boolean>> expected = RandomStreams.outputStreams(workload.size());
+            new RecalculatingWindowConnectivity(r, s, workload).computeSlidingWindowConnectivity(sorted, expected);
+            BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(r, s, 0, workload);
+            bic.setAllowedLateness(Duration.ofMillis(allowedLateness));
+            List<List<Boolean>> actual = RandomStreams.outputStreams(workload.size());
+            bic.computeSlidingWindowConnectivity(arrivals, actual);
+            assertEquals("seed " + seed, expected, actual);
+            assertEquals("seed " + seed, numOfLateEdges, bic.getNumOfDroppedEdges());
+        }
+    }
+
+    // the released edges are in timestamp order, an edge exactly allowedLateness after the largest timestamp is kept,
+    // and a gap of many rings of buckets releases every staged edge before the edges after it
+    @Test
+    public void releasesInTimeStampOrderAcrossGaps() {
+        long slide = 10, allowedLateness = 25; // a ring of 4 buckets
+        List<StreamingEdge> arrivals = new ArrayList<>();
+        arrivals.add(new StreamingEdge(0, 1, 100));
+        arrivals.add(new StreamingEdge(1, 2, 134));
+        arrivals.add(new StreamingEdge(2, 3, 109)); // exactly allowedLateness late, at the end of its slide
+        arrivals.add(new StreamingEdge(3, 4, 103)); // later than allowedLateness, and its slide is not released yet
+        arrivals.add(new StreamingEdge(4, 5, 1_000_000)); // a gap of 100,000 slides
+        arrivals.add(new StreamingEdge(5, 6, 120)); // too late
+        arrivals.add(new StreamingEdge(6, 7, 999_980));
+        ReorderBuffer reorderBuffer = new ReorderBuffer(arrivals.iterator(), allowedLateness, slide);
+        List<Long> timeStamps = new ArrayList<>();
+        while (reorderBuffer.hasNext())
+            timeStamps.add(reorderBuffer.next().timeStamp);
+        assertEquals(List.of(100L, 103L, 109L, 134L, 999_980L, 1_000_000L), timeStamps);
+        assertEquals(1, reorderBuffer.getNumOfDroppedEdges());
+    }
+
+    // the arrival order sorts the edges by their timestamp plus a delay of at most allowedLateness, keeping the order of equal keys
+    private static List<StreamingEdge> perturb(Random random, List<StreamingEdge> sorted, long allowedLateness) {
+        List<long[]> keys = new ArrayList<>(sorted.size());
+        for (int i = 0; i < sorted.size(); i++)
+            keys.add(new long[]{sorted.get(i).timeStamp + (long) random.nextInt((int) allowedLateness + 1), i});
+        keys.sort(Comparator.comparingLong((long[] key) -> key[0]));
+        List<StreamingEdge> ret = new ArrayList<>(sorted.size());
+        for (long[] key : keys)
+            ret.add(sorted.get((int) key[1]));
+        return ret;
+    }
+}
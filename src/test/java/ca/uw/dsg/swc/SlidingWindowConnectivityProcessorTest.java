@@ -0,0 +1,178 @@
+package ca.uw.dsg.swc;
+
+import ca.uw.dsg.swc.baselines.naive.RecalculatingWindowConnectivity;
+import ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SlidingWindowConnectivityProcessorTest {
+
+    // one edge is requested at a time, and a single result is buffered, such that the publisher is held back by the subscriber,
+    // which requests every result from another thread than the one that published the previous result
+    @Test
+    public void resultsAgainstRecalculation() throws InterruptedException {
+        ExecutorService requester = Executors.newSingleThreadExecutor();
+        try {
+            for (int seed = 0; seed < 20; seed++) {
+                Random random = new Random(seed);
+                int numOfVertices = 5 + random.nextInt(40);
+                long slide = 1 + random.nextInt(10), range = slide * (1 + random.nextInt(8));
+                List<StreamingEdge> streamingEdges = new ArrayList<>();
+                long timeStamp = 1000;
+                for (int i = 0, num = 50 + random.nextInt(400); i < num; i++) {
+                    timeStamp += random.nextInt((int) (random.nextInt(20) == 0 ? slide * 20 : slide));
+                    streamingEdges.add(new StreamingEdge(random.nextInt(numOfVertices), random.nextInt(numOfVertices), timeStamp));
+                }
+                List<IntIntPair> workload = RandomStreams.workload(random, numOfVertices, 20);
+                Duration r = Duration.ofMillis(range), s = Duration.ofMillis(slide);
+                List<List<Boolean>> expected = RandomStreams.outputStreams(workload.size());
+                new RecalculatingWindowConnectivity(r, s, workload).computeSlidingWindowConnectivity(streamingEdges, expected);
+
+                SlidingWindowConnectivityProcessor processor = new SlidingWindowConnectivityProcessor(
+                        new BidirectionalIncrementalConnectivity(r, s, 0, workload), 1, 1);
+                CollectingSubscriber subscriber = new CollectingSubscriber(requester);
+                processor.subscribe(subscriber);
+                try (SubmissionPublisher<StreamingEdge> publisher = new SubmissionPublisher<>()) {
+                    publisher.subscribe(processor);
+                    for (StreamingEdge streamingEdge : streamingEdges)
+                        publisher.submit(streamingEdge);
+                }
+                assertTrue("seed " + seed, subscriber.isDone.await(30, TimeUnit.SECONDS));
+                assertNull("seed " + seed, subscriber.error);
+                assertEquals("seed " + seed, expected.get(0).size(), subscriber.results.size());
+                for (int window = 0; window < subscriber.results.size(); window++) {
+                    WindowResult result = subscriber.results.get(window);
+                    assertEquals(subscriber.results.get(0).startOfWindow + window * slide, result.startOfWindow);
+                    assertEquals(result.startOfWindow + range, result.endOfWindow);
+                    for (int slot = 0; slot < workload.size(); slot++)
+                        assertEquals("seed " + seed + " window " + window + " slot " + slot, expected.get(slot).get(window), result.isConnected(slot));
+                }
+            }
+        } finally {
+            requester.shutdownNow();
+        }
+    }
+
+    @Test
+    public void secondSubscriberIsRejected() throws InterruptedException {
+        SlidingWindowConnectivityProcessor processor = newProcessor();
+        CollectingSubscriber first = new CollectingSubscriber(null), second = new CollectingSubscriber(null);
+        processor.subscribe(first);
+        processor.subscribe(second);
+        assertTrue(second.isDone.await(0, TimeUnit.SECONDS));
+        assertTrue(second.error instanceof IllegalStateException);
+        assertFalse(first.isDone.await(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void requestOfZeroFailsAndCancelsTheUpstream() throws InterruptedException {
+        SlidingWindowConnectivityProcessor processor = newProcessor();
+        RecordingSubscription upstream = new RecordingSubscription();
+        processor.onSubscribe(upstream);
+        CollectingSubscriber subscriber = new CollectingSubscriber(null);
+        processor.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.isDone.await(0, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(upstream.isCancelled);
+    }
+
+    // the edges in flight are still delivered after the cancel, but no more edges are requested and no result is published
+    @Test
+    public void cancelStopsUpstreamRequests() {
+        SlidingWindowConnectivityProcessor processor = newProcessor();
+        RecordingSubscription upstream = new RecordingSubscription();
+        processor.onSubscribe(upstream);
+        CollectingSubscriber subscriber = new CollectingSubscriber(null);
+        processor.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(1, upstream.numOfRequestedEdges);
+        processor.onNext(new StreamingEdge(0, 1, 0));
+        processor.onNext(new StreamingEdge(1, 2, 10)); // closes the first window
+        assertEquals(3, upstream.numOfRequestedEdges);
+        assertEquals(1, subscriber.results.size());
+
+        subscriber.subscription.cancel();
+        assertTrue(upstream.isCancelled);
+        processor.onNext(new StreamingEdge(2, 3, 20));
+        processor.onComplete();
+        assertEquals(3, upstream.numOfRequestedEdges);
+        assertEquals(1, subscriber.results.size());
+        assertEquals(1, subscriber.isDone.getCount()); // no terminal signal follows a cancel
+    }
+
+    private static SlidingWindowConnectivityProcessor newProcessor() {
+        return new SlidingWindowConnectivityProcessor(new BidirectionalIncrementalConnectivity(Duration.ofMillis(10), Duration.ofMillis(10), 0,
+                Collections.singletonList(IntIntPair.of(0, 1))), 1, 1);
+    }
+
+    private static class RecordingSubscription implements Flow.Subscription {
+        private long numOfRequestedEdges;
+        private boolean isCancelled;
+
+        @Override
+        public void request(long n) {
+            numOfRequestedEdges += n;
+        }
+
+        @Override
+        public void cancel() {
+            isCancelled = true;
+        }
+    }
+
+    // requests one result at a time on the executor, or requests nothing by itself if the executor is null
+    private static class CollectingSubscriber implements Flow.Subscriber<WindowResult> {
+        private final ExecutorService requester;
+        private final List<WindowResult> results = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch isDone = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        CollectingSubscriber(ExecutorService requester) {
+            this.requester = requester;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (requester != null)
+                requester.execute(() -> subscription.request(1));
+        }
+
+        @Override
+        public void onNext(WindowResult item) {
+            results.add(item);
+            if (requester != null)
+                requester.execute(() -> subscription.request(1));
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            isDone.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            isDone.countDown();
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package ca.uw.dsg.swc.bic;
+
+import ca.uw.dsg.swc.AbstractSlidingWindowConnectivity;
+import ca.uw.dsg.swc.RandomStreams;
+import ca.uw.dsg.swc.StreamingEdge;
+import ca.uw.dsg.swc.baselines.naive.RecalculatingWindowConnectivity;
+import ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity.BackwardComputation;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BidirectionalIncrementalConnectivityTest {
+
+    // vertices 1 and 3 are first added to the backward buffer by self-loops, and are only connected by an edge of an earlier pane
+    @Test
+    public void selfLoopsDoNotConnectTheirVertices() {
+        List<StreamingEdge> streamingEdges = Arrays.asList(
+                new StreamingEdge(3, 3, 0),
+                new StreamingEdge(1, 3, 1),
+                new StreamingEdge(1, 1, 2),
+                new StreamingEdge(3, 3, 2),
+                new StreamingEdge(3, 3, 3),
+                new StreamingEdge(0, 0, 11));
+        List<IntIntPair> workload = Arrays.asList(IntIntPair.of(1, 3));
+        Duration range = Duration.ofMillis(3), slide = Duration.ofMillis(1);
+        assertEquals(answers(new RecalculatingWindowConnectivity(range, slide, workload), streamingEdges, workload),
+                answers(new BidirectionalIncrementalConnectivity(range, slide, 0, workload), streamingEdges, workload));
+    }
+
+    @Test
+    public void selfLoopsAgainstRecalculation() {
+        for (int seed = 0; seed < 500; seed++) {
+            Random random = new Random(seed);
+            int numOfVertices = 4 + random.nextInt(8);
+            long slide = 1 + random.nextInt(5), range = slide * (1 + random.nextInt(5));
+            List<StreamingEdge> streamingEdges = new ArrayList<>();
+            long timeStamp = 0;
+            for (int i = 0, num = 10 + random.nextInt(60); i < num; i++) {
+                timeStamp += random.nextInt((int) slide + 1);
+                int source = random.nextInt(numOfVertices), target = random.nextInt(4) == 0 ? source : random.nextInt(numOfVertices);
+                streamingEdges.add(new StreamingEdge(source, target, timeStamp));
+            }
+            List<IntIntPair> workload = RandomStreams.workload(random, numOfVertices, 20);
+            Duration r = Duration.ofMillis(range), s = Duration.ofMillis(slide);
+            List<List<Boolean>> expected = answers(new RecalculatingWindowConnectivity(r, s, workload), streamingEdges, workload);
+            assertEquals("seed " + seed, expected, answers(new BidirectionalIncrementalConnectivity(r, s, 0, workload), streamingEdges, workload));
+            BidirectionalIncrementalConnectivity batch = new BidirectionalIncrementalConnectivity(r, s, 0, workload);
+            batch.setBatchQueryEvaluation(true);
+            assertEquals("batch seed " + seed, expected, answers(batch, streamingEdges, workload));
+        }
+    }
+
+    // the edges are ingested by the iterator of the input stream, which registers a query halfway and tries to register one from another thread
+    @Test
+    public void registerQueryDuringRun() throws InterruptedException {
+        Random random = new Random(3);
+        List<StreamingEdge> streamingEdges = RandomStreams.edges(random, 30, 2000, 7);
+        List<IntIntPair> workload = RandomStreams.workload(random, 30, 2);
+        Duration range = Duration.ofMillis(700), slide = Duration.ofMillis(100);
+        BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(range, slide, 0, workload);
+        List<RuntimeException> errors = new ArrayList<>();
+        Collection<StreamingEdge> inputStream = new AbstractCollection<StreamingEdge>() {
+            @Override
+            public Iterator<StreamingEdge> iterator() {
+                Iterator<StreamingEdge> iterator = streamingEdges.iterator();
+                return new Iterator<StreamingEdge>() {
+                    int i;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public StreamingEdge next() {
+                        if (i++ == streamingEdges.size() / 2) {
+                            Thread thread = new Thread(() -> {
+                                try {
+                                    bic.registerQuery(1, 2);
+                                } catch (RuntimeException e) {
+                                    errors.add(e);
+                                }
+                            });
+                            thread.start();
+                            try {
+                                thread.join();
+                            } catch (InterruptedException e) {
+                                throw new RuntimeException(e);
+                            }
+                            assertEquals(2, bic.registerQuery(3, 4));
+                        }
+                        return iterator.next();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return streamingEdges.size();
+            }
+        };
+        List<List<Boolean>> outputStreams = RandomStreams.outputStreams(workload.size());
+        bic.computeSlidingWindowConnectivity(inputStream, outputStreams);
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof IllegalStateException);
+        assertEquals(3, outputStreams.size());
+        List<IntIntPair> all = new ArrayList<>(workload);
+        all.add(IntIntPair.of(3, 4));
+        List<Boolean> expected = answers(new RecalculatingWindowConnectivity(range, slide, all), streamingEdges, all).get(2);
+        List<Boolean> registered = outputStreams.get(2);
+        assertTrue(!registered.isEmpty() && registered.size() < expected.size());
+        assertEquals(expected.subList(expected.size() - registered.size(), expected.size()), registered);
+        assertEquals(expected.size(), outputStreams.get(0).size());
+    }
+
+    // recent edges are deleted, such that the backward buffer of the previous chunk is computed again from the last element with a deleted edge,
+    // with chunks of more than 64 panes, and with the component aggregates and off-heap columns as well
+    @Test
+    public void deletionsAgainstRecalculation() {
+        for (BackwardComputation backwardComputation : BackwardComputation.values())
+            for (int seed = 0; seed < 100; seed++) {
+                Random random = new Random(seed);
+                int numOfVertices = 5 + random.nextInt(40);
+                long slide = 1 + random.nextInt(10), range = random.nextBoolean() ? slide * (1 + random.nextInt(8)) : slide + random.nextInt(100);
+                List<StreamingEdge> streamingEdges = new ArrayList<>(), insertions = new ArrayList<>();
+                long timeStamp = 1000;
+                for (int i = 0, num = 50 + random.nextInt(400); i < num; i++) {
+                    timeStamp += random.nextInt((int) (random.nextInt(20) == 0 ? slide * 20 : slide));
+                    if (!insertions.isEmpty() && random.nextDouble() < 0.15) {
+                        StreamingEdge deleted = insertions.get(insertions.size() - 1 - random.nextInt(Math.min(insertions.size(), 100)));
+                        streamingEdges.add(new StreamingEdge(deleted.source, deleted.target, timeStamp, true));
+                    } else {
+                        StreamingEdge inserted = new StreamingEdge(random.nextInt(numOfVertices), random.nextInt(numOfVertices), timeStamp);
+                        streamingEdges.add(inserted);
+                        insertions.add(inserted);
+                    }
+                }
+                List<IntIntPair> workload = RandomStreams.workload(random, numOfVertices, 20);
+                Duration r = Duration.ofMillis(range), s = Duration.ofMillis(slide);
+                BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(r, s, streamingEdges.get(0).timeStamp, workload, backwardComputation);
+                bic.setEdgeDeletions(true);
+                bic.setComponentAggregates(random.nextBoolean());
+                bic.setOffHeapBackwardBuffers(random.nextBoolean());
+                bic.setBatchQueryEvaluation(random.nextBoolean());
+                assertEquals(backwardComputation + " seed " + seed, answers(new RecalculatingWindowConnectivity(r, s, workload), streamingEdges, workload),
+                        answers(bic, streamingEdges, workload));
+                bic.shutdown();
+            }
+    }
+
+    // the number of components and the size of the component of every vertex are checked in every window against a union-find over the edges of the window,
+    // on streams with gaps and self-loops, whose vertices are in the window
+    @Test
+    public void componentAggregatesAgainstUnionFind() {
+        for (BackwardComputation backwardComputation : BackwardComputation.values())
+            for (int seed = 0; seed < 100; seed++) {
+                Random random = new Random(seed);
+                int numOfVertices = 5 + random.nextInt(40);
+                long slide = 1 + random.nextInt(10), range = random.nextBoolean() ? slide * (1 + random.nextInt(8)) : slide + random.nextInt(100); // chunks of more than 64 panes as well
+                List<StreamingEdge> streamingEdges = new ArrayList<>();
+                long timeStamp = 1000;
+                for (int i = 0, num = 50 + random.nextInt(400); i < num; i++) {
+                    timeStamp += random.nextInt((int) (random.nextInt(20) == 0 ? slide * 20 : slide));
+                    streamingEdges.add(new StreamingEdge(random.nextInt(numOfVertices), random.nextInt(numOfVertices), timeStamp));
+                }
+                BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(Duration.ofMillis(range), Duration.ofMillis(slide),
+                        streamingEdges.get(0).timeStamp, new ArrayList<>(), backwardComputation);
+                bic.setComponentAggregates(true);
+                long startOfWindow = streamingEdges.get(0).timeStamp;
+                for (int i = 0; i < streamingEdges.size(); i++) {
+                    for (; streamingEdges.get(i).timeStamp - startOfWindow >= range; startOfWindow += slide) { // the window before the edge is complete
+                        checkComponents(bic, streamingEdges.subList(0, i), startOfWindow, range, numOfVertices, backwardComputation + " seed " + seed);
+                        bic.query(0, 0); // slides the window
+                    }
+                    bic.insert(streamingEdges.get(i));
+                }
+                bic.shutdown();
+            }
+    }
+
+    private static void checkComponents(BidirectionalIncrementalConnectivity bic, List<StreamingEdge> streamingEdges, long startOfWindow, long range, int numOfVertices, String message) {
+        int[] parent = new int[numOfVertices];
+        Arrays.fill(parent, -1);
+        for (StreamingEdge streamingEdge : streamingEdges)
+            if (streamingEdge.timeStamp >= startOfWindow && streamingEdge.timeStamp < startOfWindow + range) {
+                int source = find(parent, streamingEdge.source), target = find(parent, streamingEdge.target);
+                if (source != target)
+                    parent[source] = target;
+            }
+        int[] sizes = new int[numOfVertices];
+        int numOfComponents = 0;
+        for (int v = 0; v < numOfVertices; v++)
+            if (parent[v] != -1 && sizes[find(parent, v)]++ == 0)
+                numOfComponents++;
+        assertEquals(message + " window " + startOfWindow, numOfComponents, bic.numOfComponents());
+        for (int v = 0; v < numOfVertices; v++)
+            assertEquals(message + " window " + startOfWindow + " vertex " + v, parent[v] == -1 ? 0 : sizes[find(parent, v)], bic.sizeOfComponent(v));
+    }
+
+    // -1 if v is not in the window, and a vertex that is visited is added as a root
+    private static int find(int[] parent, int v) {
+        if (parent[v] == -1)
+            parent[v] = v;
+        while (parent[v] != v)
+            v = parent[v];
+        return v;
+    }
+
+    // queries on suffixes of every complete window are checked against a union-find over the edges of the suffix,
+    // where a suffix that starts at the same pane as one of a previous window is answered after the edges inserted in between
+    @Test
+    public void suffixQueriesAgainstUnionFind() {
+        for (int seed = 0; seed < 100; seed++) {
+            Random random = new Random(seed);
+            int numOfVertices = 5 + random.nextInt(40);
+            long slide = 1 + random.nextInt(10), range = random.nextBoolean() ? slide * (1 + random.nextInt(8)) : slide + random.nextInt(100);
+            long lengthOfPane = BidirectionalIncrementalConnectivity.gcd(range, slide);
+            List<StreamingEdge> streamingEdges = new ArrayList<>();
+            long timeStamp = 1000;
+            for (int i = 0, num = 50 + random.nextInt(400); i < num; i++) {
+                timeStamp += random.nextInt((int) (random.nextInt(20) == 0 ? slide * 20 : slide));
+                streamingEdges.add(new StreamingEdge(random.nextInt(numOfVertices), random.nextInt(numOfVertices), timeStamp));
+            }
+            BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(Duration.ofMillis(range), Duration.ofMillis(slide),
+                    streamingEdges.get(0).timeStamp, new ArrayList<>());
+            long startOfWindow = streamingEdges.get(0).timeStamp;
+            for (int i = 0; i < streamingEdges.size(); i++) {
+                for (; streamingEdges.get(i).timeStamp - startOfWindow >= range; startOfWindow += slide) { // the window before the edge is complete
+                    for (int j = 0; j < 3; j++) {
+                        long rangeOfQuery = lengthOfPane * (1 + random.nextInt((int) (range / lengthOfPane)));
+                        int source = random.nextInt(numOfVertices), target = random.nextInt(numOfVertices);
+                        int[] parent = new int[numOfVertices];
+                        Arrays.fill(parent, -1);
+                        for (StreamingEdge streamingEdge : streamingEdges.subList(0, i))
+                            if (streamingEdge.timeStamp >= startOfWindow + range - rangeOfQuery && streamingEdge.timeStamp < startOfWindow + range) {
+                                int rootOfSource = find(parent, streamingEdge.source), rootOfTarget = find(parent, streamingEdge.target);
+                                if (rootOfSource != rootOfTarget)
+                                    parent[rootOfSource] = rootOfTarget;
+                            }
+                        boolean expected = parent[source] != -1 && parent[target] != -1 && find(parent, source) == find(parent, target);
+                        assertEquals("seed " + seed + " window " + startOfWindow + " range of query " + rangeOfQuery, expected,
+                                bic.connected(source, target, Duration.ofMillis(rangeOfQuery)));
+                    }
+                    bic.query(0, 0); // slides the window
+                }
+                bic.insert(streamingEdges.get(i));
+            }
+            bic.shutdown();
+        }
+    }
+
+    // the vertices drift over the stream, such that the dictionary of the dense-id mode is compacted at chunk boundaries,
+    // and the queries are on vertices that are dropped, retained, or not seen yet
+    @Test
+    public void denseIdsWithDriftingVertices() {
+        for (int seed = 0; seed < 10; seed++) {
+            Random random = new Random(seed);
+            long slide = 1 + random.nextInt(10), range = slide * (1 + random.nextInt(4));
+            List<StreamingEdge> streamingEdges = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++)
+                streamingEdges.add(new StreamingEdge(i + random.nextInt(50), i + random.nextInt(50), i / 20));
+            List<IntIntPair> workload = RandomStreams.workload(random, 20_050, 50);
+            Duration r = Duration.ofMillis(range), s = Duration.ofMillis(slide);
+            BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(r, s, 0, workload);
+            bic.setDenseVertexIds(true);
+            assertEquals("seed " + seed, answers(new RecalculatingWindowConnectivity(r, s, workload), streamingEdges, workload),
+                    answers(bic, streamingEdges, workload));
+        }
+    }
+
+    @Test
+    public void denseForwardBufferCompactsItsDictionary() {
+        VertexDictionary dictionary = new VertexDictionary();
+        DenseForwardBuffer forwardBuffer = new DenseForwardBuffer(Arrays.asList(IntIntPair.of(0, 1)), dictionary);
+        RootPair rootsInF = new RootPair();
+        int numOfVerticesPerChunk = 1000;
+        for (int chunk = 0; chunk < 100; chunk++) {
+            forwardBuffer.reset();
+            assertTrue("chunk " + chunk, dictionary.size() <= Math.max(DenseForwardBuffer.COMPACTION_THRESHOLD, 2 * numOfVerticesPerChunk));
+            int first = chunk * numOfVerticesPerChunk / 2; // half of the vertices of a chunk recur in the next one
+            for (int v = first; v < first + numOfVerticesPerChunk - 1; v++)
+                forwardBuffer.insertEdge(v, v + 1);
+            forwardBuffer.findRoots(first, first + numOfVerticesPerChunk - 1, rootsInF);
+            assertTrue(rootsInF.sourceRoot != BidirectionalIncrementalConnectivity.EMPTY_ROOT && rootsInF.sourceRoot == rootsInF.targetRoot);
+            assertEquals(chunk == 0, forwardBuffer.intraConnected(0));
+        }
+    }
+
+    static List<List<Boolean>> answers(AbstractSlidingWindowConnectivity swc, List<StreamingEdge> streamingEdges, List<IntIntPair> workload) {
+        List<List<Boolean>> outputStreams = RandomStreams.outputStreams(workload.size());
+        swc.computeSlidingWindowConnectivity(streamingEdges, outputStreams);
+        return outputStreams;
+    }
+}
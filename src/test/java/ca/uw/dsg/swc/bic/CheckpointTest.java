@@ -0,0 +1,150 @@
+package ca.uw.dsg.swc.bic;
+
+import ca.uw.dsg.swc.RandomStreams;
+import ca.uw.dsg.swc.StreamingEdge;
+import ca.uw.dsg.swc.baselines.naive.RecalculatingWindowConnectivity;
+import ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity.BackwardComputation;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+// a run is split at a random edge into a run before a checkpoint and a run of the restored instance, whose answers are compared with the ones of one run
+public class CheckpointTest {
+    private static final int NUM_OF_QUERIES = 10;
+    private static final int DENSE_VERTEX_IDS = 1, OFF_HEAP = 2, BATCH = 4, DELETIONS = 8, AGGREGATES = 16;
+    private static final int[] CONFIGURATIONS = {0, DENSE_VERTEX_IDS, OFF_HEAP, BATCH, DELETIONS, AGGREGATES, 31};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        for (BackwardComputation backwardComputation : BackwardComputation.values())
+            for (int configuration : CONFIGURATIONS)
+                for (int seed = 0; seed < 20; seed++) {
+                    Random random = new Random(seed);
+                    Run run = new Run(random, configuration);
+                    int k = 1 + random.nextInt(run.streamingEdges.size() - 1);
+                    BidirectionalIncrementalConnectivity bic = run.newInstance(backwardComputation);
+                    List<List<Boolean>> outputStreams = RandomStreams.outputStreams(NUM_OF_QUERIES), restoredOutputStreams = RandomStreams.outputStreams(NUM_OF_QUERIES);
+                    bic.computeSlidingWindowConnectivity(new ArrayList<>(run.streamingEdges.subList(0, k)), outputStreams);
+                    int numOfComponents = (configuration & AGGREGATES) != 0 ? bic.numOfComponents() : 0;
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    bic.checkpoint().writeTo(bytes);
+                    bic.shutdown();
+
+                    BidirectionalIncrementalConnectivity restored = BidirectionalIncrementalConnectivity.restore(new ByteArrayInputStream(bytes.toByteArray()), backwardComputation);
+                    String message = backwardComputation + " configuration " + configuration + " seed " + seed;
+                    if ((configuration & AGGREGATES) != 0)
+                        assertEquals(message, numOfComponents, restored.numOfComponents());
+                    restored.computeSlidingWindowConnectivity(new ArrayList<>(run.streamingEdges.subList(k, run.streamingEdges.size())), restoredOutputStreams);
+                    restored.shutdown();
+                    for (int i = 0; i < NUM_OF_QUERIES; i++)
+                        outputStreams.get(i).addAll(restoredOutputStreams.get(i));
+                    assertEquals(message, run.expectedOutputStreams(), outputStreams);
+                }
+    }
+
+    // the instance crashes after some edges following the checkpoint, which are replayed from the edge log, and the windows that were answered
+    // after the last edge of the log are answered again, so the crash is after an edge in a window
+    @Test
+    public void roundTripWithEdgeLog() throws IOException {
+        for (BackwardComputation backwardComputation : BackwardComputation.values())
+            for (int configuration : CONFIGURATIONS)
+                for (int seed = 0; seed < 8; seed++) {
+                    Random random = new Random(seed);
+                    Run run = new Run(random, configuration);
+                    List<StreamingEdge> streamingEdges = run.streamingEdges;
+                    int k = 1 + random.nextInt(streamingEdges.size() - 1);
+                    BidirectionalIncrementalConnectivity bic = run.newInstance(backwardComputation);
+                    Path directory = temporaryFolder.newFolder().toPath();
+                    EdgeLog edgeLog = new EdgeLog(directory);
+                    bic.setEdgeLog(edgeLog);
+                    List<List<Boolean>> outputStreams = RandomStreams.outputStreams(NUM_OF_QUERIES);
+                    bic.computeSlidingWindowConnectivity(new ArrayList<>(streamingEdges.subList(0, k)), outputStreams);
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    bic.checkpoint().writeTo(bytes);
+                    bic.shutdown();
+                    Checkpoint checkpoint = Checkpoint.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+                    edgeLog.truncate(checkpoint);
+
+                    int crash = k + random.nextInt(streamingEdges.size() - k);
+                    while (crash > k && (streamingEdges.get(crash - 1).timeStamp - streamingEdges.get(0).timeStamp) % run.slide >= run.range)
+                        crash--;
+                    BidirectionalIncrementalConnectivity restored = BidirectionalIncrementalConnectivity.restore(checkpoint, edgeLog, backwardComputation);
+                    List<List<Boolean>> beforeCrash = RandomStreams.outputStreams(NUM_OF_QUERIES), afterCrash = RandomStreams.outputStreams(NUM_OF_QUERIES);
+                    if (crash > k)
+                        restored.computeSlidingWindowConnectivity(new ArrayList<>(streamingEdges.subList(k, crash)), beforeCrash);
+                    restored.shutdown(); // the edge log is not closed
+
+                    BidirectionalIncrementalConnectivity recovered = BidirectionalIncrementalConnectivity.restore(checkpoint, new EdgeLog(directory), backwardComputation);
+                    if (crash < streamingEdges.size())
+                        recovered.computeSlidingWindowConnectivity(new ArrayList<>(streamingEdges.subList(crash, streamingEdges.size())), afterCrash);
+                    recovered.shutdown();
+                    for (int i = 0; i < NUM_OF_QUERIES; i++) {
+                        outputStreams.get(i).addAll(beforeCrash.get(i));
+                        outputStreams.get(i).addAll(afterCrash.get(i));
+                    }
+                    assertEquals(backwardComputation + " configuration " + configuration + " seed " + seed, run.expectedOutputStreams(), outputStreams);
+                }
+    }
+
+    // a stream with gaps of empty windows, self-loops, and, with deletions, deletions of recent edges
+    private static class Run {
+        private final int configuration;
+        private final long range, slide;
+        private final List<StreamingEdge> streamingEdges;
+        private final List<IntIntPair> workload;
+
+        Run(Random random, int configuration) {
+            this.configuration = configuration;
+            int numOfVertices = 5 + random.nextInt(40);
+            this.slide = 1 + random.nextInt(10);
+            this.range = random.nextBoolean() ? slide * (1 + random.nextInt(8)) : 1 + random.nextInt(40);
+            this.streamingEdges = new ArrayList<>();
+            List<StreamingEdge> insertions = new ArrayList<>();
+            long timeStamp = 1000;
+            for (int i = 0, num = 50 + random.nextInt(400); i < num; i++) {
+                timeStamp += random.nextInt((int) (random.nextInt(20) == 0 ? slide * 20 : slide));
+                if ((configuration & DELETIONS) != 0 && !insertions.isEmpty() && random.nextDouble() < 0.15) {
+                    StreamingEdge deleted = insertions.get(insertions.size() - 1 - random.nextInt(Math.min(insertions.size(), 30)));
+                    streamingEdges.add(new StreamingEdge(deleted.source, deleted.target, timeStamp, true));
+                } else {
+                    StreamingEdge inserted = new StreamingEdge(random.nextInt(numOfVertices), random.nextInt(numOfVertices), timeStamp);
+                    streamingEdges.add(inserted);
+                    insertions.add(inserted);
+                }
+            }
+            this.workload = RandomStreams.workload(random, numOfVertices + 2, NUM_OF_QUERIES); // queries of vertices that are not in the stream
+        }
+
+        BidirectionalIncrementalConnectivity newInstance(BackwardComputation backwardComputation) {
+            BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(Duration.ofMillis(range), Duration.ofMillis(slide),
+                    streamingEdges.get(0).timeStamp, workload, backwardComputation);
+            bic.setDenseVertexIds((configuration & DENSE_VERTEX_IDS) != 0);
+            bic.setOffHeapBackwardBuffers((configuration & OFF_HEAP) != 0);
+            bic.setBatchQueryEvaluation((configuration & BATCH) != 0);
+            bic.setEdgeDeletions((configuration & DELETIONS) != 0);
+            bic.setComponentAggregates((configuration & AGGREGATES) != 0);
+            return bic;
+        }
+
+        List<List<Boolean>> expectedOutputStreams() {
+            List<List<Boolean>> ret = RandomStreams.outputStreams(NUM_OF_QUERIES);
+            new RecalculatingWindowConnectivity(Duration.ofMillis(range), Duration.ofMillis(slide), workload).computeSlidingWindowConnectivity(streamingEdges, ret);
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ca.uw.dsg.swc.bic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class IntColumnStoreTest {
+
+    @Test
+    public void offHeapStoresAreReusedThroughTheirPool() {
+        IntColumnStore.OffHeapPool pool = new IntColumnStore.OffHeapPool();
+        IntColumnStore first = IntColumnStore.create(3, 16, pool), second = IntColumnStore.create(3, 16, pool);
+        assertNotSame(first, second);
+        first.set(2, 15, 7);
+        assertEquals(7, first.get(2, 15));
+        first.free();
+        first.free(); // a second free does not hand the store out twice
+        assertEquals(3L * 16 * Integer.BYTES, pool.sizeInBytes());
+        IntColumnStore third = IntColumnStore.create(3, 64, pool);
+        assertSame(first, third);
+        assertEquals(64, third.capacity()); // a pooled store that is too small gets new buffers
+        assertNotSame(third, IntColumnStore.create(3, 16, pool));
+        third.grow();
+        third.set(0, 127, 1);
+        assertEquals(1, third.get(0, 127));
+        third.free();
+        assertNotSame(third, IntColumnStore.create(4, 16, pool)); // a store with another number of columns is not reused
+    }
+}
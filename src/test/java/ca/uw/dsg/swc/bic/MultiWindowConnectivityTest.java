@@ -0,0 +1,85 @@
+package ca.uw.dsg.swc.bic;
+
+import ca.uw.dsg.swc.RandomStreams;
+import ca.uw.dsg.swc.StreamingEdge;
+import ca.uw.dsg.swc.baselines.naive.RecalculatingWindowConnectivity;
+import ca.uw.dsg.swc.bic.BidirectionalIncrementalConnectivity.BackwardComputation;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class MultiWindowConnectivityTest {
+
+    // specifications with distinct ranges, ranges that are not multiples of their slides, and specifications sharing a range,
+    // on streams with gaps and with more edges than the initial columns of the pane store, such that the columns are replaced while the chunks of every core read them
+    @Test
+    public void specificationsAgainstRecalculation() {
+        for (BackwardComputation backwardComputation : BackwardComputation.values())
+            for (int seed = 0; seed < 20; seed++)
+                checkAgainstRecalculation(new Random(seed), backwardComputation, false, backwardComputation + " seed " + seed);
+    }
+
+    // recent edges are deleted, such that the chunk of every core that holds them is rebuilt from the shared columns
+    @Test
+    public void deletionsAgainstRecalculation() {
+        for (BackwardComputation backwardComputation : BackwardComputation.values())
+            for (int seed = 0; seed < 20; seed++)
+                checkAgainstRecalculation(new Random(seed), backwardComputation, true, backwardComputation + " seed " + seed);
+    }
+
+    private static void checkAgainstRecalculation(Random random, BackwardComputation backwardComputation, boolean edgeDeletions, String message) {
+        int numOfVertices = 5 + random.nextInt(60), numOfSpecifications = 2 + random.nextInt(4);
+        long unit = 1 + random.nextInt(5);
+        List<MultiWindowConnectivity.WindowSpecification> windowSpecifications = new ArrayList<>();
+        List<long[]> rangesAndSlides = new ArrayList<>();
+        List<List<IntIntPair>> workloads = new ArrayList<>();
+        Set<Long> ranges = new HashSet<>();
+        for (int i = 0; i < numOfSpecifications; i++) {
+            long slide = unit * (1 + random.nextInt(4));
+            long range = i > 0 && random.nextInt(4) == 0 ? rangesAndSlides.get(0)[0] : random.nextBoolean() ? slide * (1 + random.nextInt(6)) : slide + random.nextInt(60);
+            List<IntIntPair> workload = RandomStreams.workload(random, numOfVertices, 5 + random.nextInt(80));
+            windowSpecifications.add(new MultiWindowConnectivity.WindowSpecification(Duration.ofMillis(range), Duration.ofMillis(slide), workload));
+            rangesAndSlides.add(new long[]{range, slide});
+            workloads.add(workload);
+            ranges.add(range);
+        }
+
+        List<StreamingEdge> streamingEdges = new ArrayList<>(), insertions = new ArrayList<>();
+        long timeStamp = 1000;
+        for (int i = 0, num = 500 + random.nextInt(3000); i < num; i++) {
+            timeStamp += random.nextInt(100) == 0 ? unit * 200 : random.nextInt(2);
+            if (edgeDeletions && !insertions.isEmpty() && random.nextDouble() < 0.15) {
+                StreamingEdge deleted = insertions.get(insertions.size() - 1 - random.nextInt(Math.min(insertions.size(), 100)));
+                streamingEdges.add(new StreamingEdge(deleted.source, deleted.target, timeStamp, true));
+            } else {
+                StreamingEdge inserted = new StreamingEdge(random.nextInt(numOfVertices), random.nextInt(numOfVertices), timeStamp);
+                streamingEdges.add(inserted);
+                insertions.add(inserted);
+            }
+        }
+
+        MultiWindowConnectivity multiWindowConnectivity = new MultiWindowConnectivity(windowSpecifications, backwardComputation);
+        multiWindowConnectivity.setEdgeDeletions(edgeDeletions);
+        assertEquals(message, ranges.size(), multiWindowConnectivity.getNumOfCores());
+        List<List<List<Boolean>>> outputStreams = new ArrayList<>();
+        for (List<IntIntPair> workload : workloads)
+            outputStreams.add(RandomStreams.outputStreams(workload.size()));
+        multiWindowConnectivity.computeSlidingWindowConnectivity(streamingEdges, outputStreams);
+        multiWindowConnectivity.shutdown();
+
+        for (int i = 0; i < numOfSpecifications; i++) {
+            List<List<Boolean>> expected = RandomStreams.outputStreams(workloads.get(i).size());
+            new RecalculatingWindowConnectivity(Duration.ofMillis(rangesAndSlides.get(i)[0]), Duration.ofMillis(rangesAndSlides.get(i)[1]), workloads.get(i))
+                    .computeSlidingWindowConnectivity(streamingEdges, expected);
+            assertEquals(message + " specification " + i, expected, outputStreams.get(i));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ca.uw.dsg.swc.bic;
+
+import ca.uw.dsg.swc.RandomStreams;
+import ca.uw.dsg.swc.StreamingEdge;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// the bytes allocated by answering the workload of a window, which are zero after warmup for a window that ends in the chunk of the last edge,
+// i.e., whose query does not complete a chunk and create the buffers of the next one
+public class QueryAllocationTest {
+    private static final int NUM_OF_VERTICES = 20_000, NUM_OF_EDGES = 300_000, NUM_OF_QUERIES = 1_000;
+    private static final long STEP = 10; // 100 edges per second
+    private static final Duration RANGE = Duration.ofSeconds(60), SLIDE = Duration.ofSeconds(5);
+
+    @Test
+    public void queryWithoutAllocation() {
+        assertSteadyStateAllocation(false);
+    }
+
+    @Test
+    public void batchQueryWithoutAllocation() {
+        assertSteadyStateAllocation(true);
+    }
+
+    private static void assertSteadyStateAllocation(boolean batchQueryEvaluation) {
+        Random random = new Random(1700276688);
+        List<StreamingEdge> streamingEdges = RandomStreams.edges(random, NUM_OF_VERTICES, NUM_OF_EDGES, STEP);
+        List<IntIntPair> workload = RandomStreams.workload(random, NUM_OF_VERTICES, NUM_OF_QUERIES);
+        long[] answers = new long[(NUM_OF_QUERIES + Long.SIZE - 1) >>> 6];
+
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+
+        BidirectionalIncrementalConnectivity bic = new BidirectionalIncrementalConnectivity(RANGE, SLIDE, 0, workload);
+        bic.setBatchQueryEvaluation(batchQueryEvaluation);
+        long range = RANGE.toMillis(), startOfCurrentWindow = 0, lastTimeStamp = 0;
+        int window = 0, warmup = (int) (NUM_OF_EDGES * STEP / SLIDE.toMillis() / 2), measured = 0;
+        long allocated = 0;
+        for (StreamingEdge streamingEdge : streamingEdges) {
+            while (streamingEdge.timeStamp - startOfCurrentWindow >= range) {
+                boolean isSteady = window++ >= warmup && (startOfCurrentWindow + range - 1) / range == lastTimeStamp / range; // the chunks start at 0
+                Arrays.fill(answers, 0L);
+                long before = threadMXBean.getThreadAllocatedBytes(threadId);
+                bic.query(workload, answers);
+                long after = threadMXBean.getThreadAllocatedBytes(threadId);
+                if (isSteady) {
+                    allocated += after - before;
+                    measured++;
+                }
+                startOfCurrentWindow += SLIDE.toMillis();
+                bic.evict(startOfCurrentWindow);
+            }
+            bic.insert(streamingEdge);
+            lastTimeStamp = streamingEdge.timeStamp;
+        }
+        assertTrue(measured > 100);
+        assertEquals("bytes allocated by " + measured + " windows", 0, allocated);
+    }
+}